@@ -0,0 +1,56 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package extract;
+
+/**
+ * Thrown by a {@link FrameExtractor} when a document exceeds one of the
+ * limits of its {@link FrameExtractorConfiguration}.
+ */
+public class BudgetExceededException extends Exception {
+	private static final long serialVersionUID = 1L;
+
+	public enum Reason {
+		TOKENS("tokens"),
+		TIME("time"),
+		FRAMES("frames");
+
+		private String name;
+
+		private Reason(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+	}
+
+	private Reason reason;
+
+	public BudgetExceededException(Reason reason, String message) {
+		super(message);
+		this.reason = reason;
+	}
+
+	public Reason getReason() {
+		return reason;
+	}
+}
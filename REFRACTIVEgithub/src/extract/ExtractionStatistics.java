@@ -0,0 +1,93 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package extract;
+
+import metrics.MetricsSink;
+
+/**
+ * Statistics gathered by a {@link FrameExtractor}, kept in plain fields so
+ * that extraction does not touch any counter. The owner of a statistics
+ * object flushes it to a {@link MetricsSink} when it sees fit, typically
+ * once per task. A statistics object is not thread-safe; each extraction
+ * thread keeps its own.
+ */
+public class ExtractionStatistics {
+	private long namedEntities;
+	private long predicates;
+	private long frameNamedEntities;
+	private long framePredicates;
+
+	public long getNamedEntities() {
+		return namedEntities;
+	}
+
+	public long getPredicates() {
+		return predicates;
+	}
+
+	/**
+	 * The number of named entities whose head token is part of a frame.
+	 */
+	public long getFrameNamedEntities() {
+		return frameNamedEntities;
+	}
+
+	/**
+	 * The number of predicate tokens that are part of a frame.
+	 */
+	public long getFramePredicates() {
+		return framePredicates;
+	}
+
+	void addSentence(long namedEntities, long predicates, long frameNamedEntities, long framePredicates) {
+		this.namedEntities += namedEntities;
+		this.predicates += predicates;
+		this.frameNamedEntities += frameNamedEntities;
+		this.framePredicates += framePredicates;
+	}
+
+	public void add(ExtractionStatistics statistics) {
+		namedEntities += statistics.namedEntities;
+		predicates += statistics.predicates;
+		frameNamedEntities += statistics.frameNamedEntities;
+		framePredicates += statistics.framePredicates;
+	}
+
+	/**
+	 * Adds the statistics to the counters of the sink and starts over from
+	 * zero.
+	 */
+	public void flush(MetricsSink metricsSink) {
+		metricsSink.increment("wikipedia", "named entity count", namedEntities);
+		metricsSink.increment("wikipedia", "predicates", predicates);
+		metricsSink.increment("frames", "named entity count", frameNamedEntities);
+		metricsSink.increment("frames", "predicate token count", framePredicates);
+
+		clear();
+	}
+
+	public void clear() {
+		namedEntities = 0;
+		predicates = 0;
+		frameNamedEntities = 0;
+		framePredicates = 0;
+	}
+}
@@ -1,419 +1,450 @@
-/**
- * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
- * Copyright © 2013 Peter Exner
- * 
- * This file is part of Refractive.
- *
- * Refractive is free software: you can redistribute it and/or modify
- * it under the terms of the GNU General Public License as published by
- * the Free Software Foundation, either version 3 of the License, or
- * (at your option) any later version.
- *
- * Refractive is distributed in the hope that it will be useful,
- * but WITHOUT ANY WARRANTY; without even the implied warranty of
- * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
- * GNU General Public License for more details.
- *
- * You should have received a copy of the GNU General Public License
- * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
- */
-
-package extract;
-
-import id.UniqueIdGenerator;
-import io.Frame;
-import io.Slot;
-
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.List;
-import java.util.Map.Entry;
-import java.util.TreeMap;
-import java.util.TreeSet;
-
-import org.apache.hadoop.mapreduce.Reducer.Context;
-
-import conll.model.Document;
-import conll.model.Edge;
-import conll.model.Edge.EdgeType;
-import conll.model.Sentence;
-import conll.model.Span;
-import conll.model.Span.SpanType;
-import conll.model.Token;
-import conll.model.TokenPropertyIdentifier;
-
-public class FrameExtractor {
-	private static UniqueIdGenerator uniqueIdGenerator;
-	
-	public static UniqueIdGenerator getUniqueIdGenerator() {
-		return uniqueIdGenerator;
-	}
-	
-	public static void setUniqueIdGenerator(UniqueIdGenerator uniqueIdGenerator) {
-		FrameExtractor.uniqueIdGenerator = uniqueIdGenerator;
-	}
-	
-	public static List<Frame> extractFrames(Document conllDocument, int frameHeight, @SuppressWarnings("rawtypes") Context context) throws Exception {
-		List<Frame> frames = new ArrayList<Frame>();
-
-		for(Sentence sentence:conllDocument.getSentences()) {
-			TreeMap<Long, TreeSet<Token>> frameTokenMap = extractFrameTokens(sentence, frameHeight);
-
-			for(Entry<Long, TreeSet<Token>> entry:frameTokenMap.entrySet()) {
-				frames.add(convertFrameTokensToFrame(entry.getValue(), entry.getKey()));
-			}
-			
-			List<Span> neSpans = sentence.getSpansBySpanType(SpanType.NE);
-			context.getCounter("wikipedia", "named entity count").increment(neSpans.size());
-			
-			Collection<Token> predicateTokens = sentence.getPredicateTokens();
-			context.getCounter("wikipedia", "predicates").increment(predicateTokens.size());
-			
-			for(Span neSpan:neSpans) {
-				boolean foundNeSpan = false;
-				for(Entry<Long, TreeSet<Token>> entry:frameTokenMap.entrySet()) {
-					for(Token frameToken:entry.getValue()) {
-						if(tokenIsHeadTokenInSpan(frameToken, neSpan)) {
-							context.getCounter("frames", "named entity count").increment(1);
-							foundNeSpan = true;
-							break;
-						}
-					}
-					
-					if(foundNeSpan) {
-						break;
-					}
-				}
-			}
-			
-			for(Token predicateToken:predicateTokens) {
-				boolean foundPredicateToken = false;
-				for(Entry<Long, TreeSet<Token>> entry:frameTokenMap.entrySet()) {
-					for(Token frameToken:entry.getValue()) {
-						if(predicateToken == frameToken) {
-							context.getCounter("frames", "predicate token count").increment(1);
-							foundPredicateToken = true;
-							break;
-						}
-					}
-					
-					if(foundPredicateToken) {
-						break;
-					}
-				}
-			}
-			
-		}
-
-		return frames;
-	}
-	
-	public static List<Frame> extractFramesNoStats(Document conllDocument, int frameHeight) throws Exception {
-		List<Frame> frames = new ArrayList<Frame>();
-
-		for(Sentence sentence:conllDocument.getSentences()) {
-			TreeMap<Long, TreeSet<Token>> frameTokenMap = extractFrameTokens(sentence, frameHeight);
-
-			for(Entry<Long, TreeSet<Token>> entry:frameTokenMap.entrySet()) {
-				frames.add(convertFrameTokensToFrame(entry.getValue(), entry.getKey()));
-			}
-		}
-
-		return frames;
-	}
-
-	private static TreeMap<Long, TreeSet<Token>> extractFrameTokens(Sentence sentence, int frameHeight) throws Exception {
-		TreeMap<Long, TreeSet<Token>> frameTokenMap = new TreeMap<Long, TreeSet<Token>>();
-		List<Edge> edgeList = sentence.getRootToken().getEdgesByType(EdgeType.PDEPENDENCY);
-
-		if((edgeList.size() == 1) && tokenIsNounOrVerb(edgeList.get(0).getFrom())) {
-			Long frameId = uniqueIdGenerator.nextLong();
-			frameTokenMap.put(frameId, new TreeSet<Token>());
-			extractFrameTokensIter(edgeList.get(0).getFrom(), frameHeight, frameHeight, frameId, frameTokenMap);
-		}
-
-		return frameTokenMap;
-	}
-
-	private static void extractFrameTokensIter(Token token, int frameHeight, int level, long frameId, TreeMap<Long, TreeSet<Token>> frameTokenMap) throws Exception {
-		List<Edge> edgeList = token.getEdgesByType(EdgeType.PDEPENDENCY);
-		
-		if(level == -1) {
-			if(tokenIsNounOrVerb(token)) {
-				Long newFrameId = uniqueIdGenerator.nextLong();
-				
-				frameTokenMap.put(newFrameId, new TreeSet<Token>());
-				token.setProperty(TokenPropertyIdentifier.FEAT, frameId + ":" + newFrameId);
-				extractFrameTokensIter(token, frameHeight, frameHeight, newFrameId, frameTokenMap);
-			} else {
-				for(Edge edge:edgeList) {
-					Token fromToken = edge.getFrom();
-					extractFrameTokensIter(fromToken, frameHeight, -1, frameId, frameTokenMap);
-				}
-			}
-		} else if(level == 0) {
-			frameTokenMap.get(frameId).add(token);
-			
-			if((edgeList.size() > 0)) {
-				if(tokenIsNounOrVerb(token)) {
-					Long newFrameId = uniqueIdGenerator.nextLong();
-					
-					frameTokenMap.put(newFrameId, new TreeSet<Token>());
-					token.setProperty(TokenPropertyIdentifier.FEAT, frameId + ":" + newFrameId);
-					extractFrameTokensIter(token, frameHeight, frameHeight, newFrameId, frameTokenMap);
-				} else {
-					for(Edge edge:edgeList) {
-						Token fromToken = edge.getFrom();
-						extractFrameTokensIter(fromToken, frameHeight, -1, frameId, frameTokenMap);
-					}
-				}
-			}
-		} else {
-			frameTokenMap.get(frameId).add(token);
-			
-			for(Edge edge:edgeList) {
-				Token fromToken = edge.getFrom();
-				extractFrameTokensIter(fromToken, frameHeight, level - 1, frameId, frameTokenMap);
-			}
-		}
-	}
-
-	private static Frame convertFrameTokensToFrame(TreeSet<Token> frameTokens, long frameId) throws Exception {
-		Frame frame = new Frame();
-		frame.setFrameId(frameId);
-
-		String relation;
-		String headCoreferenceMention;
-		String yield;
-		String namedEntityType;
-		Boolean isProperNoun;
-
-		for(Token frameToken:frameTokens) {
-			String ppos = frameToken.getProperty(TokenPropertyIdentifier.PPOS);
-			
-			if(ppos.equalsIgnoreCase("NNP") || ppos.equalsIgnoreCase("NNPS")) {
-				isProperNoun = true;
-			} else {
-				isProperNoun = false;
-			}
-			
-			if(tokenIsFrameRootToken(frameToken, frameTokens)) {
-				if(ppos.startsWith("NN")) {
-					relation = "NOUN";
-				} else if(ppos.startsWith("VB")) {
-					relation = "VERB";
-				} else {
-					relation = frameToken.getProperty(TokenPropertyIdentifier.PDEPREL);
-				}
-			} else {
-				relation = frameToken.getProperty(TokenPropertyIdentifier.PDEPREL);
-			}
-
-			Slot slot = new Slot();
-			slot.setRelation(relation);
-			slot.setValue(getLemmaOrFrameReference(frameToken, frameId));
-			slot.setIsProperNoun(isProperNoun);
-			frame.getSlots().add(slot);
-			
-			
-			headCoreferenceMention = getHeadCoreferenceMention(frameToken);
-			if(!headCoreferenceMention.equals("")) {
-				slot = new Slot();
-				slot.setRelation(relation + "-C");
-				slot.setValue(headCoreferenceMention);
-				slot.setIsProperNoun(isProperNoun);
-				frame.getSlots().add(slot);
-			}
-
-			yield = getYield(frameToken, frameTokens, new ArrayList<String>(Arrays.asList("DT", "IN")));
-			if(!yield.equals("")) {
-				slot = new Slot();
-				slot.setRelation(relation + "-Y");
-				slot.setValue(yield);
-				slot.setIsProperNoun(isProperNoun);
-				frame.getSlots().add(slot);
-			}
-
-			namedEntityType = getNamedEntity(frameToken);
-			if(!namedEntityType.equals("")) {
-				slot = new Slot();
-				slot.setRelation(relation + "-T");
-				slot.setValue(namedEntityType);
-				slot.setIsProperNoun(isProperNoun);
-				frame.getSlots().add(slot);
-			}
-			
-			emitSemanticSlots(frameToken, frameTokens, frame, isProperNoun);
-		}
-
-		return frame;
-	}
-
-	private static void emitSemanticSlots(Token frameToken, TreeSet<Token> frameTokens, Frame frame, boolean isProperNoun) throws Exception {
-		String predicate = frameToken.getProperty(TokenPropertyIdentifier.PRED);
-		Slot slot;
-		String relation;
-		String yield;
-		
-		if(!predicate.equalsIgnoreCase("_")) {
-			slot = new Slot();
-			relation = predicate.toUpperCase();
-			slot.setRelation(relation);
-			slot.setValue(frameToken.getProperty(TokenPropertyIdentifier.PLEMMA));
-			slot.setIsProperNoun(isProperNoun);
-			frame.getSlots().add(slot);
-			
-			yield = getYield(frameToken, frameTokens, new ArrayList<String>(Arrays.asList("DT", "IN")));
-			if(!yield.equals("")) {
-				slot = new Slot();
-				slot.setRelation(relation + "-Y");
-				slot.setValue(yield);
-				slot.setIsProperNoun(isProperNoun);
-				frame.getSlots().add(slot);
-			}
-		}
-		
-		List<Edge> edgeList = frameToken.getSentence().getEdgesByFromType(frameToken, EdgeType.SEMANTICROLE);
-		
-		for(Edge edge:edgeList) {
-			predicate = edge.getTo().getProperty(TokenPropertyIdentifier.PRED);
-			if(!predicate.equalsIgnoreCase("_")) {
-				slot = new Slot();
-				relation = predicate.toUpperCase() + "_" + edge.getLabel();
-				slot.setRelation(relation);
-				slot.setValue(frameToken.getProperty(TokenPropertyIdentifier.PLEMMA));
-				slot.setIsProperNoun(isProperNoun);
-				frame.getSlots().add(slot);
-				
-				yield = getYield(frameToken, frameTokens, new ArrayList<String>(Arrays.asList("DT", "IN")));
-				if(!yield.equals("")) {
-					slot = new Slot();
-					slot.setRelation(relation + "-Y");
-					slot.setValue(yield);
-					slot.setIsProperNoun(isProperNoun);
-					frame.getSlots().add(slot);
-				}
-			}
-		}
-	}
-
-	private static String getLemmaOrFrameReference(Token frameToken, long frameId) throws Exception {
-		String[] frameReference = frameToken.getProperty(TokenPropertyIdentifier.FEAT).split(":");
-		if(frameReference.length == 2) {
-			if(Long.valueOf(frameReference[0]).longValue() == frameId) {
-				return ("Frame " + frameReference[1]);
-			} else {
-				return (frameToken.getProperty(TokenPropertyIdentifier.PLEMMA));
-			}
-		} else {
-			return (frameToken.getProperty(TokenPropertyIdentifier.PLEMMA));
-		}
-	}
-
-	private static String getYield(Token frameToken, TreeSet<Token> frameTokens, List<String> excludePOS) throws Exception {
-		TreeSet<Token> yield = new  TreeSet<Token>();
-		getYieldRecursive(frameToken, frameTokens, yield);
-
-		StringBuilder sb = new StringBuilder();
-		for(Token yieldToken:yield) {
-			if(!excludePOS.contains(yieldToken.getProperty(TokenPropertyIdentifier.PPOS))) {
-				sb.append(yieldToken.getProperty(TokenPropertyIdentifier.FORM) + " ");
-			}
-		}
-
-		return sb.toString().trim();
-	}
-
-	private static void getYieldRecursive(Token frameToken, TreeSet<Token> frameTokens, TreeSet<Token> yield) {
-		if(frameTokens.contains(frameToken)) {
-			yield.add(frameToken);
-
-			List<Edge> edgeList = frameToken.getEdgesByType(EdgeType.PDEPENDENCY);
-			for(Edge edge:edgeList) {
-				getYieldRecursive(edge.getFrom(), frameTokens, yield);
-			}
-		}
-	}
-
-	private static String getNamedEntity(Token frameToken) throws Exception {
-		List<Span> namedEntitySpans = frameToken.getSentence().getSpansBySpanType(SpanType.NE);
-
-		String namedEntityLabel = "";
-		for(Span namedEntitySpan:namedEntitySpans) {
-			if(tokenIsHeadTokenInSpan(frameToken, namedEntitySpan)) {
-				namedEntityLabel = namedEntitySpan.getLabel();
-			}
-		}
-
-		return namedEntityLabel;
-	}
-
-	private static String getHeadCoreferenceMention(Token frameToken) throws Exception {
-		List<Span> corefSpans = frameToken.getSentence().getSpansBySpanType(SpanType.COREF);
-
-		String corefLabel = "";
-		for(Span corefSpan:corefSpans) {
-			if(tokenIsHeadTokenInSpan(frameToken, corefSpan)) {
-				corefLabel = corefSpan.getLabel();
-				break;
-			}
-		}
-
-		StringBuilder corefSpan = new StringBuilder();
-
-		if(!corefLabel.equalsIgnoreCase("")) {
-			if(!corefLabel.endsWith("*")) {
-				corefLabel = corefLabel + "*";
-			}
-
-			List<Span> corefDocumentSpans = frameToken.getSentence().getDocument().getSpansBySpanTypeAndLabel(SpanType.COREF, corefLabel);
-
-			if(corefDocumentSpans.size() == 1) {
-				for(Token token:corefDocumentSpans.get(0).getTokenSpan()) {
-					corefSpan.append(token.getProperty(TokenPropertyIdentifier.FORM) + " ");
-				}		
-			}
-		}
-
-		return corefSpan.toString().trim();
-	}
-
-	private static boolean tokenIsHeadTokenInSpan(Token token, Span span) throws Exception {
-		int startTokenId = Integer.valueOf(span.getStartToken().getProperty(TokenPropertyIdentifier.ID));
-		int endTokenId = Integer.valueOf(span.getEndToken().getProperty(TokenPropertyIdentifier.ID));
-		
-		
-		for(Token headToken:span.getTokenSpan()) {
-			int headTokenParentId = Integer.parseInt(headToken.getProperty(TokenPropertyIdentifier.PHEAD));
-			
-			if(headTokenParentId < startTokenId || headTokenParentId > endTokenId) {
-				return token == headToken;
-			}
-		}
-		
-		return false;
-	}
-
-	private static boolean tokenIsNounOrVerb(Token token) throws Exception {
-		String ppos = token.getProperty(TokenPropertyIdentifier.PPOS);
-
-		if(ppos.startsWith("NN") || ppos.startsWith("VB")) {
-			return true;
-		} else {
-			return false;
-		}		
-	}
-
-	private static boolean tokenIsFrameRootToken(Token token, TreeSet<Token> frameTokens) {
-		List<Edge> edgeList = token.getSentence().getEdgesByFromType(token, EdgeType.PDEPENDENCY);
-
-		for(Edge edge:edgeList) {
-			if(frameTokens.contains(edge.getTo())) {
-				return false;
-			}
-		}
-
-		return true;
-	}
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package extract;
+
+import id.UniqueIdGenerator;
+import io.Frame;
+import io.RelationPool;
+import io.Slot;
+import io.conll.CoNLLDocument;
+import io.conll.CoNLLParser;
+import io.conll.CoNLLSentence;
+import io.conll.CoNLLSpans;
+import io.conll.StringPool;
+import metrics.MetricsSink;
+import metrics.NullMetricsSink;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import conll.model.Document;
+import extract.BudgetExceededException.Reason;
+
+/**
+ * Extracts frames from CoNLL documents, in the compact form read by
+ * {@link CoNLLParser}. An extractor holds no per-document state, so a
+ * single instance can be shared by several threads as long as its
+ * {@link UniqueIdGenerator} and {@link MetricsSink} are thread-safe.
+ */
+public class FrameExtractor {
+	private static final int NOUN_RELATION = RelationPool.intern("NOUN");
+	private static final int VERB_RELATION = RelationPool.intern("VERB");
+
+	private final UniqueIdGenerator uniqueIdGenerator;
+	private final FrameExtractorConfiguration configuration;
+	private MetricsSink metricsSink;
+
+	public FrameExtractor(UniqueIdGenerator uniqueIdGenerator) {
+		this(uniqueIdGenerator, new FrameExtractorConfiguration());
+	}
+
+	public FrameExtractor(UniqueIdGenerator uniqueIdGenerator, FrameExtractorConfiguration configuration) {
+		this.uniqueIdGenerator = uniqueIdGenerator;
+		this.configuration = configuration;
+		this.metricsSink = new NullMetricsSink();
+	}
+
+	public UniqueIdGenerator getUniqueIdGenerator() {
+		return uniqueIdGenerator;
+	}
+
+	public FrameExtractorConfiguration getConfiguration() {
+		return configuration;
+	}
+
+	public MetricsSink getMetricsSink() {
+		return metricsSink;
+	}
+
+	public void setMetricsSink(MetricsSink metricsSink) {
+		this.metricsSink = metricsSink;
+	}
+
+	/**
+	 * Extracts frames from a document read by conlltools, converting it to
+	 * the compact form first.
+	 */
+	public List<Frame> extractFrames(Document conllDocument) throws Exception {
+		return extractFrames(new CoNLLParser().convert(conllDocument));
+	}
+
+	public List<Frame> extractFrames(Document conllDocument, ExtractionStatistics statistics) throws Exception {
+		return extractFrames(new CoNLLParser().convert(conllDocument), statistics);
+	}
+
+	/**
+	 * Extracts frames and adds the statistics of the document to the
+	 * metrics sink of the extractor.
+	 */
+	public List<Frame> extractFrames(CoNLLDocument document) throws Exception {
+		ExtractionStatistics statistics = new ExtractionStatistics();
+		List<Frame> frames = extractFrames(document, statistics);
+		statistics.flush(metricsSink);
+
+		return frames;
+	}
+
+	/**
+	 * Extracts frames and adds the statistics of the document to the given
+	 * statistics, leaving it to the caller to flush them. Throws a
+	 * {@link BudgetExceededException} if the document exceeds one of the
+	 * limits of the configuration, in which case the statistics are left
+	 * untouched.
+	 */
+	public List<Frame> extractFrames(CoNLLDocument document, ExtractionStatistics statistics) throws Exception {
+		List<Frame> frames = new ArrayList<Frame>();
+		ExtractionStatistics documentStatistics = new ExtractionStatistics();
+		StringPool stringPool = document.getStringPool();
+		long startTime = System.currentTimeMillis();
+
+		int[] frameHeights = configuration.getFrameHeights();
+
+		checkDocumentTokens(document);
+
+		for(int s=0; s<document.getSentenceCount(); s++) {
+			checkExtractionTime(startTime);
+
+			CoNLLSentence sentence = document.getSentence(s);
+			SentenceFrames[] sentenceFramesByHeight = extractFrameTokens(sentence, stringPool, frameHeights);
+			checkSentenceFrames(sentenceFramesByHeight);
+			SpanHeadIndex spanHeadIndex = new SpanHeadIndex(sentence);
+			FrameYieldIndex frameYieldIndex = new FrameYieldIndex(sentence, stringPool, configuration.getYieldExcludedPOS());
+
+			for(int i=0; i<frameHeights.length; i++) {
+				SentenceFrames sentenceFrames = sentenceFramesByHeight[i];
+
+				for(int frame=0; frame<sentenceFrames.getFrameCount(); frame++) {
+					frameYieldIndex.setFrame(sentenceFrames, frame);
+					Frame convertedFrame = convertFrameTokensToFrame(document, sentence, frame, sentenceFrames, frameYieldIndex, spanHeadIndex);
+					convertedFrame.setHeight(frameHeights[i]);
+					frames.add(convertedFrame);
+				}
+			}
+
+			// Frame statistics are gathered for the first configured height
+			SentenceFrames sentenceFrames = sentenceFramesByHeight[0];
+			int frameNamedEntities = 0;
+			int framePredicates = 0;
+
+			for(int i=0; i<spanHeadIndex.getNamedEntityHeadCount(); i++) {
+				if(sentenceFrames.isFrameToken(spanHeadIndex.getNamedEntityHead(i))) {
+					frameNamedEntities++;
+				}
+			}
+
+			for(int i=0; i<sentence.getPredicateCount(); i++) {
+				if(sentenceFrames.isFrameToken(sentence.getPredicateToken(i))) {
+					framePredicates++;
+				}
+			}
+
+			documentStatistics.addSentence(sentence.getNamedEntitySpans().getCount(), sentence.getPredicateCount(), frameNamedEntities, framePredicates);
+		}
+
+		statistics.add(documentStatistics);
+
+		return frames;
+	}
+
+	private void checkDocumentTokens(CoNLLDocument document) throws BudgetExceededException {
+		if(configuration.getMaxDocumentTokens() <= 0) {
+			return;
+		}
+
+		long tokenCount = 0;
+		for(int s=0; s<document.getSentenceCount(); s++) {
+			tokenCount += document.getSentence(s).getTokenCount();
+		}
+
+		if(tokenCount > configuration.getMaxDocumentTokens()) {
+			throw new BudgetExceededException(Reason.TOKENS, "Document has " + tokenCount + " tokens, the limit is " + configuration.getMaxDocumentTokens());
+		}
+	}
+
+	private void checkExtractionTime(long startTime) throws BudgetExceededException {
+		long time = System.currentTimeMillis() - startTime;
+
+		if(configuration.getMaxExtractionTime() > 0 && time > configuration.getMaxExtractionTime()) {
+			throw new BudgetExceededException(Reason.TIME, "Extraction took " + time + " ms, the limit is " + configuration.getMaxExtractionTime() + " ms");
+		}
+	}
+
+	private void checkSentenceFrames(SentenceFrames[] sentenceFramesByHeight) throws BudgetExceededException {
+		if(configuration.getMaxSentenceFrames() <= 0) {
+			return;
+		}
+
+		for(SentenceFrames sentenceFrames:sentenceFramesByHeight) {
+			if(sentenceFrames.getFrameCount() > configuration.getMaxSentenceFrames()) {
+				throw new BudgetExceededException(Reason.FRAMES, "Sentence has " + sentenceFrames.getFrameCount() + " frames, the limit is " + configuration.getMaxSentenceFrames());
+			}
+		}
+	}
+
+	private SentenceFrames[] extractFrameTokens(CoNLLSentence sentence, StringPool stringPool, int[] frameHeights) {
+		SentenceFrames[] sentenceFramesByHeight = new SentenceFrames[frameHeights.length];
+		for(int i=0; i<frameHeights.length; i++) {
+			sentenceFramesByHeight[i] = new SentenceFrames(sentence.getTokenCount());
+		}
+
+		if((sentence.getChildCount(0) == 1) && tokenIsNounOrVerb(sentence, stringPool, sentence.getChild(0, 0))) {
+			extractFrameTokens(sentence, stringPool, frameHeights, sentenceFramesByHeight);
+		}
+
+		for(int i=0; i<frameHeights.length; i++) {
+			sentenceFramesByHeight[i].finish();
+		}
+
+		return sentenceFramesByHeight;
+	}
+
+	/**
+	 * Walks the dependency tree depth-first with an explicit stack, visiting
+	 * each token once for all frame heights. For every height a token has
+	 * its own level and frame, and the levels and frames its children are
+	 * visited with are kept per token, so a child finds them at its head.
+	 * Children are pushed in reverse so that they are visited, and frame ids
+	 * are allocated, in sentence order.
+	 */
+	private void extractFrameTokens(CoNLLSentence sentence, StringPool stringPool, int[] frameHeights, SentenceFrames[] sentenceFramesByHeight) {
+		int heightCount = frameHeights.length;
+		int[] childLevels = new int[(sentence.getTokenCount() + 1) * heightCount];
+		int[] childFrames = new int[(sentence.getTokenCount() + 1) * heightCount];
+		int[] stack = new int[sentence.getTokenCount() + 1];
+		int stackSize = 0;
+
+		// The root passes the full height and a first frame to its only child
+		for(int i=0; i<heightCount; i++) {
+			childLevels[i] = frameHeights[i];
+			childFrames[i] = sentenceFramesByHeight[i].addFrame(uniqueIdGenerator.nextLong());
+		}
+
+		stack[stackSize++] = sentence.getChild(0, 0);
+
+		while(stackSize > 0) {
+			int token = stack[--stackSize];
+			int parentState = sentence.getHead(token) * heightCount;
+			int tokenState = token * heightCount;
+			int childCount = sentence.getChildCount(token);
+			boolean isNounOrVerb = tokenIsNounOrVerb(sentence, stringPool, token);
+
+			for(int i=0; i<heightCount; i++) {
+				int level = childLevels[parentState + i];
+				int frame = childFrames[parentState + i];
+				SentenceFrames sentenceFrames = sentenceFramesByHeight[i];
+
+				if(level == 0) {
+					sentenceFrames.addToken(frame, token);
+				}
+
+				if((level == -1) || ((level == 0) && (childCount > 0))) {
+					if(isNounOrVerb) {
+						int newFrame = sentenceFrames.addFrame(uniqueIdGenerator.nextLong());
+
+						sentenceFrames.linkChildFrame(token, frame, newFrame);
+
+						level = frameHeights[i];
+						frame = newFrame;
+					} else {
+						childLevels[tokenState + i] = -1;
+						childFrames[tokenState + i] = frame;
+						continue;
+					}
+				}
+
+				if(level > 0) {
+					sentenceFrames.addToken(frame, token);
+					childLevels[tokenState + i] = level - 1;
+					childFrames[tokenState + i] = frame;
+				}
+			}
+
+			for(int i=childCount - 1; i>=0; i--) {
+				stack[stackSize++] = sentence.getChild(token, i);
+			}
+		}
+	}
+
+	private Frame convertFrameTokensToFrame(CoNLLDocument document, CoNLLSentence sentence, int frameIndex, SentenceFrames sentenceFrames, FrameYieldIndex frameYieldIndex, SpanHeadIndex spanHeadIndex) {
+		StringPool stringPool = document.getStringPool();
+		Frame frame = new Frame();
+		frame.setFrameId(sentenceFrames.getFrameId(frameIndex));
+
+		int relation;
+		String headCoreferenceMention;
+		String yield;
+		String namedEntityType;
+		Boolean isProperNoun;
+
+		for(int i=0; i<sentenceFrames.getTokenCount(frameIndex); i++) {
+			int frameToken = sentenceFrames.getToken(frameIndex, i);
+			String ppos = stringPool.get(sentence.getPartOfSpeech(frameToken));
+			
+			if(ppos.equalsIgnoreCase("NNP") || ppos.equalsIgnoreCase("NNPS")) {
+				isProperNoun = true;
+			} else {
+				isProperNoun = false;
+			}
+			
+			if(tokenIsFrameRootToken(sentence, frameToken, frameYieldIndex)) {
+				if(ppos.startsWith("NN")) {
+					relation = NOUN_RELATION;
+				} else if(ppos.startsWith("VB")) {
+					relation = VERB_RELATION;
+				} else {
+					relation = RelationPool.intern(stringPool.get(sentence.getDependencyRelation(frameToken)));
+				}
+			} else {
+				relation = RelationPool.intern(stringPool.get(sentence.getDependencyRelation(frameToken)));
+			}
+
+			addSlot(frame, relation, Slot.Kind.LEMMA, RelationPool.NONE, getLemmaOrFrameReference(sentence, stringPool, frameToken, frameIndex, sentenceFrames), isProperNoun);
+			
+			if(configuration.getEmitCoreferenceSlots()) {
+				headCoreferenceMention = getHeadCoreferenceMention(document, frameToken, spanHeadIndex);
+			} else {
+				headCoreferenceMention = "";
+			}
+			if(!headCoreferenceMention.equals("")) {
+				addSlot(frame, relation, Slot.Kind.COREFERENCE, RelationPool.NONE, headCoreferenceMention, isProperNoun);
+			}
+
+			yield = getYield(frameToken, frameYieldIndex);
+			if(!yield.equals("")) {
+				addSlot(frame, relation, Slot.Kind.YIELD, RelationPool.NONE, yield, isProperNoun);
+			}
+
+			if(configuration.getEmitNamedEntitySlots() && spanHeadIndex.getNamedEntityLabel(frameToken) != CoNLLSentence.NONE) {
+				namedEntityType = stringPool.get(spanHeadIndex.getNamedEntityLabel(frameToken));
+			} else {
+				namedEntityType = "";
+			}
+			if(!namedEntityType.equals("")) {
+				addSlot(frame, relation, Slot.Kind.NAMED_ENTITY_TYPE, RelationPool.NONE, namedEntityType, isProperNoun);
+			}
+			
+			if(configuration.getEmitSemanticSlots()) {
+				emitSemanticSlots(sentence, stringPool, frameToken, frameYieldIndex, frame, isProperNoun);
+			}
+		}
+
+		return frame;
+	}
+
+	/**
+	 * Emits the slots of the predicate sense of a token and of the semantic
+	 * roles it fills. Predicate senses are written in upper case, which is
+	 * the folded form kept by the {@link RelationPool}.
+	 */
+	private void emitSemanticSlots(CoNLLSentence sentence, StringPool stringPool, int frameToken, FrameYieldIndex frameYieldIndex, Frame frame, boolean isProperNoun) {
+		int predicate = sentence.getPredicateSense(frameToken);
+		int relation;
+		int semanticLabel;
+		String yield;
+		
+		if(predicate != CoNLLSentence.NONE) {
+			relation = RelationPool.getFoldedId(RelationPool.intern(stringPool.get(predicate)));
+			addSlot(frame, relation, Slot.Kind.LEMMA, RelationPool.NONE, stringPool.get(sentence.getLemma(frameToken)), isProperNoun);
+			
+			yield = getYield(frameToken, frameYieldIndex);
+			if(!yield.equals("")) {
+				addSlot(frame, relation, Slot.Kind.YIELD, RelationPool.NONE, yield, isProperNoun);
+			}
+		}
+		
+		for(int i=0; i<sentence.getArgumentCount(frameToken); i++) {
+			predicate = sentence.getPredicateSense(sentence.getArgumentPredicate(frameToken, i));
+			if(predicate != CoNLLSentence.NONE) {
+				relation = RelationPool.getFoldedId(RelationPool.intern(stringPool.get(predicate)));
+				semanticLabel = RelationPool.intern(stringPool.get(sentence.getArgumentLabel(frameToken, i)));
+				addSlot(frame, relation, Slot.Kind.LEMMA, semanticLabel, stringPool.get(sentence.getLemma(frameToken)), isProperNoun);
+				
+				yield = getYield(frameToken, frameYieldIndex);
+				if(!yield.equals("")) {
+					addSlot(frame, relation, Slot.Kind.YIELD, semanticLabel, yield, isProperNoun);
+				}
+			}
+		}
+	}
+
+	private static void addSlot(Frame frame, int relation, Slot.Kind kind, int semanticLabel, String value, boolean isProperNoun) {
+		Slot slot = new Slot();
+		slot.setRelation(relation, kind, semanticLabel);
+		slot.setValue(value);
+		slot.setIsProperNoun(isProperNoun);
+		frame.getSlots().add(slot);
+	}
+
+	private static String getLemmaOrFrameReference(CoNLLSentence sentence, StringPool stringPool, int frameToken, int frameIndex, SentenceFrames sentenceFrames) {
+		if(sentenceFrames.hasChildFrame(frameToken, frameIndex)) {
+			return ("Frame " + sentenceFrames.getChildFrameId(frameToken));
+		} else {
+			return (stringPool.get(sentence.getLemma(frameToken)));
+		}
+	}
+
+	private String getYield(int frameToken, FrameYieldIndex frameYieldIndex) {
+		if(!configuration.getEmitYieldSlots()) {
+			return "";
+		}
+
+		return frameYieldIndex.getYield(frameToken);
+	}
+
+	private static String getHeadCoreferenceMention(CoNLLDocument document, int frameToken, SpanHeadIndex spanHeadIndex) {
+		int corefLabel = spanHeadIndex.getCoreferenceLabel(frameToken);
+
+		StringBuilder corefSpan = new StringBuilder();
+
+		if(corefLabel != CoNLLSentence.NONE) {
+			int mention = document.findRepresentativeMention(corefLabel);
+
+			if(mention != -1) {
+				CoNLLSentence mentionSentence = document.getMentionSentence(mention);
+				CoNLLSpans mentionSpans = mentionSentence.getCoreferenceSpans();
+				int span = document.getMentionSpan(mention);
+
+				for(int token=mentionSpans.getStart(span); token<=mentionSpans.getEnd(span); token++) {
+					corefSpan.append(document.getStringPool().get(mentionSentence.getForm(token)) + " ");
+				}
+			}
+		}
+
+		return corefSpan.toString().trim();
+	}
+
+	private static boolean tokenIsNounOrVerb(CoNLLSentence sentence, StringPool stringPool, int token) {
+		String ppos = stringPool.get(sentence.getPartOfSpeech(token));
+
+		if(ppos.startsWith("NN") || ppos.startsWith("VB")) {
+			return true;
+		} else {
+			return false;
+		}		
+	}
+
+	/**
+	 * Returns true if the head of the token is not part of the frame.
+	 */
+	private static boolean tokenIsFrameRootToken(CoNLLSentence sentence, int token, FrameYieldIndex frameYieldIndex) {
+		return !frameYieldIndex.isFrameToken(sentence.getHead(token));
+	}
 }
\ No newline at end of file
@@ -0,0 +1,169 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package extract;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Settings of a {@link FrameExtractor}. A configuration must not be changed
+ * while an extractor that uses it is running.
+ */
+public class FrameExtractorConfiguration {
+	private int[] frameHeights;
+	private boolean emitCoreferenceSlots;
+	private boolean emitYieldSlots;
+	private boolean emitNamedEntitySlots;
+	private boolean emitSemanticSlots;
+	private Set<String> yieldExcludedPOS;
+	private int maxDocumentTokens;
+	private long maxExtractionTime;
+	private int maxSentenceFrames;
+
+	public FrameExtractorConfiguration() {
+		this.frameHeights = new int[] {2};
+		this.emitCoreferenceSlots = true;
+		this.emitYieldSlots = true;
+		this.emitNamedEntitySlots = true;
+		this.emitSemanticSlots = true;
+		this.yieldExcludedPOS = new HashSet<String>(Arrays.asList("DT", "IN"));
+		this.maxDocumentTokens = 0;
+		this.maxExtractionTime = 0;
+		this.maxSentenceFrames = 0;
+	}
+
+	public int[] getFrameHeights() {
+		return frameHeights;
+	}
+
+	/**
+	 * Sets the heights to extract frames for. All heights are extracted in
+	 * the same traversal of each sentence, and each height may only be given
+	 * once, as the extractors write one output per height.
+	 */
+	public void setFrameHeights(int... frameHeights) {
+		if(frameHeights.length == 0) {
+			throw new IllegalArgumentException("At least one frame height is required");
+		}
+
+		Set<Integer> seenHeights = new HashSet<Integer>();
+		for(int frameHeight:frameHeights) {
+			if(frameHeight < 1) {
+				throw new IllegalArgumentException("Frame height must be at least 1: " + frameHeight);
+			}
+			if(!seenHeights.add(frameHeight)) {
+				throw new IllegalArgumentException("Frame height given more than once: " + frameHeight);
+			}
+		}
+
+		this.frameHeights = frameHeights.clone();
+	}
+
+	public boolean getEmitCoreferenceSlots() {
+		return emitCoreferenceSlots;
+	}
+
+	public void setEmitCoreferenceSlots(boolean emitCoreferenceSlots) {
+		this.emitCoreferenceSlots = emitCoreferenceSlots;
+	}
+
+	public boolean getEmitYieldSlots() {
+		return emitYieldSlots;
+	}
+
+	public void setEmitYieldSlots(boolean emitYieldSlots) {
+		this.emitYieldSlots = emitYieldSlots;
+	}
+
+	public boolean getEmitNamedEntitySlots() {
+		return emitNamedEntitySlots;
+	}
+
+	public void setEmitNamedEntitySlots(boolean emitNamedEntitySlots) {
+		this.emitNamedEntitySlots = emitNamedEntitySlots;
+	}
+
+	public boolean getEmitSemanticSlots() {
+		return emitSemanticSlots;
+	}
+
+	public void setEmitSemanticSlots(boolean emitSemanticSlots) {
+		this.emitSemanticSlots = emitSemanticSlots;
+	}
+
+	public Set<String> getYieldExcludedPOS() {
+		return yieldExcludedPOS;
+	}
+
+	public void setYieldExcludedPOS(Set<String> yieldExcludedPOS) {
+		this.yieldExcludedPOS = yieldExcludedPOS;
+	}
+
+	/**
+	 * The largest number of tokens a document may have, or 0 for no limit.
+	 */
+	public int getMaxDocumentTokens() {
+		return maxDocumentTokens;
+	}
+
+	public void setMaxDocumentTokens(int maxDocumentTokens) {
+		this.maxDocumentTokens = maxDocumentTokens;
+	}
+
+	/**
+	 * The longest time in milliseconds the extraction of a document may
+	 * take, or 0 for no limit. The time is checked between sentences.
+	 */
+	public long getMaxExtractionTime() {
+		return maxExtractionTime;
+	}
+
+	public void setMaxExtractionTime(long maxExtractionTime) {
+		this.maxExtractionTime = maxExtractionTime;
+	}
+
+	/**
+	 * The largest number of frames a sentence may have at any height, or 0
+	 * for no limit.
+	 */
+	public int getMaxSentenceFrames() {
+		return maxSentenceFrames;
+	}
+
+	public void setMaxSentenceFrames(int maxSentenceFrames) {
+		this.maxSentenceFrames = maxSentenceFrames;
+	}
+
+	/**
+	 * Parses a comma separated list of frame heights, e.g. "1,2,3".
+	 */
+	public static int[] parseFrameHeights(String frameHeights) {
+		String[] parts = frameHeights.split(",");
+		int[] heights = new int[parts.length];
+
+		for(int i=0; i<parts.length; i++) {
+			heights[i] = Integer.parseInt(parts[i].trim());
+		}
+
+		return heights;
+	}
+}
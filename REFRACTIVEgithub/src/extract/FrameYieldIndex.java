@@ -0,0 +1,196 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package extract;
+
+import io.conll.CoNLLSentence;
+import io.conll.StringPool;
+
+import java.util.Set;
+
+/**
+ * Holds the yield of every token of a frame, that is the forms of the frame
+ * tokens in the token's subtree in sentence order, leaving out tokens with an
+ * excluded part of speech. Yields are computed bottom-up, each token merging
+ * the already computed yields of its children, and are kept for all slots of
+ * the frame that need them. An index belongs to one sentence and is reset
+ * for each of its frames.
+ */
+public class FrameYieldIndex {
+	private static final int[] EMPTY_YIELD = new int[0];
+
+	private CoNLLSentence sentence;
+	private StringPool stringPool;
+	private Set<String> excludedPOS;
+	private int[] tokens;
+	private int tokenCount;
+	private boolean[] isFrameToken;
+	private int[][] yieldTokenIndexes;
+	private String[] yields;
+	private int[] stack;
+
+	public FrameYieldIndex(CoNLLSentence sentence, StringPool stringPool, Set<String> excludedPOS) {
+		this.sentence = sentence;
+		this.stringPool = stringPool;
+		this.excludedPOS = excludedPOS;
+
+		int size = sentence.getTokenCount() + 1;
+		this.tokens = new int[size];
+		this.isFrameToken = new boolean[size];
+		this.yieldTokenIndexes = new int[size][];
+		this.yields = new String[size];
+		this.stack = new int[size];
+	}
+
+	/**
+	 * Makes the index hold the given frame, forgetting the previous one.
+	 */
+	public void setFrame(SentenceFrames sentenceFrames, int frame) {
+		for(int i=0; i<tokenCount; i++) {
+			int token = tokens[i];
+			isFrameToken[token] = false;
+			yieldTokenIndexes[token] = null;
+			yields[token] = null;
+		}
+
+		tokenCount = sentenceFrames.getTokenCount(frame);
+		for(int i=0; i<tokenCount; i++) {
+			tokens[i] = sentenceFrames.getToken(frame, i);
+			isFrameToken[tokens[i]] = true;
+		}
+	}
+
+	public boolean isFrameToken(int token) {
+		return token >= 0 && isFrameToken[token];
+	}
+
+	public String getYield(int frameToken) {
+		if(!isFrameToken(frameToken)) {
+			return "";
+		}
+
+		if(yields[frameToken] == null) {
+			StringBuilder sb = new StringBuilder();
+			String separator = "";
+
+			for(int yieldTokenIndex:getYieldTokenIndexes(frameToken)) {
+				sb.append(separator);
+				sb.append(stringPool.get(sentence.getForm(yieldTokenIndex)));
+				separator = " ";
+			}
+
+			yields[frameToken] = sb.toString().trim();
+		}
+
+		return yields[frameToken];
+	}
+
+	/**
+	 * Computes the yield of a token and of every frame token below it that
+	 * has none yet. Tokens are kept on an explicit stack until the yields of
+	 * all their frame children are known, so that deep trees do not grow
+	 * the call stack.
+	 */
+	private int[] getYieldTokenIndexes(int frameToken) {
+		int stackSize = 0;
+
+		if(yieldTokenIndexes[frameToken] == null) {
+			stack[stackSize++] = frameToken;
+		}
+
+		while(stackSize > 0) {
+			int token = stack[stackSize - 1];
+			int childCount = sentence.getChildCount(token);
+			boolean childrenDone = true;
+
+			for(int i=0; i<childCount; i++) {
+				int childToken = sentence.getChild(token, i);
+
+				if(isFrameToken[childToken] && yieldTokenIndexes[childToken] == null) {
+					stack[stackSize++] = childToken;
+					childrenDone = false;
+				}
+			}
+
+			if(!childrenDone) {
+				continue;
+			}
+
+			int[] yield;
+
+			if(excludedPOS.contains(stringPool.get(sentence.getPartOfSpeech(token)))) {
+				yield = EMPTY_YIELD;
+			} else {
+				yield = new int[] {token};
+			}
+
+			for(int i=0; i<childCount; i++) {
+				int childToken = sentence.getChild(token, i);
+
+				if(isFrameToken[childToken]) {
+					yield = merge(yield, yieldTokenIndexes[childToken]);
+				}
+			}
+
+			yieldTokenIndexes[token] = yield;
+			stackSize--;
+		}
+
+		return yieldTokenIndexes[frameToken];
+	}
+
+	private static int[] merge(int[] first, int[] second) {
+		if(first.length == 0) {
+			return second;
+		} else if(second.length == 0) {
+			return first;
+		}
+
+		int[] merged = new int[first.length + second.length];
+		int i = 0, j = 0, k = 0;
+
+		while(i < first.length && j < second.length) {
+			if(first[i] < second[j]) {
+				merged[k++] = first[i++];
+			} else if(first[i] > second[j]) {
+				merged[k++] = second[j++];
+			} else {
+				merged[k++] = first[i++];
+				j++;
+			}
+		}
+
+		while(i < first.length) {
+			merged[k++] = first[i++];
+		}
+
+		while(j < second.length) {
+			merged[k++] = second[j++];
+		}
+
+		if(k < merged.length) {
+			int[] trimmed = new int[k];
+			System.arraycopy(merged, 0, trimmed, 0, k);
+			return trimmed;
+		}
+
+		return merged;
+	}
+}
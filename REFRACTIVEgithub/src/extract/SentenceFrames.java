@@ -0,0 +1,143 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package extract;
+
+import java.util.Arrays;
+
+/**
+ * The frames found in one sentence: the tokens of every frame and, for
+ * tokens that are the root of a nested frame, which frame they link from
+ * and to. Frames are addressed by the order they were added in and tokens
+ * by their index in the sentence. It lives for a single extraction call and
+ * leaves the sentence untouched.
+ */
+public class SentenceFrames {
+	private int frameCount;
+	private long[] frameIds;
+
+	private int entryCount;
+	private int[] entryFrames;
+	private int[] entryTokens;
+	private int[] frameOffsets;
+	private int[] frameTokens;
+
+	private boolean[] isFrameToken;
+	private boolean[] hasChildFrame;
+	private int[] parentFrames;
+	private int[] childFrames;
+
+	public SentenceFrames(int tokenCount) {
+		this.frameIds = new long[4];
+		this.entryFrames = new int[tokenCount + 1];
+		this.entryTokens = new int[tokenCount + 1];
+		this.isFrameToken = new boolean[tokenCount + 1];
+		this.hasChildFrame = new boolean[tokenCount + 1];
+		this.parentFrames = new int[tokenCount + 1];
+		this.childFrames = new int[tokenCount + 1];
+	}
+
+	public int addFrame(long frameId) {
+		if(frameCount == frameIds.length) {
+			frameIds = Arrays.copyOf(frameIds, frameCount * 2);
+		}
+
+		frameIds[frameCount] = frameId;
+		return frameCount++;
+	}
+
+	public void addToken(int frame, int token) {
+		if(entryCount == entryTokens.length) {
+			entryFrames = Arrays.copyOf(entryFrames, entryCount * 2);
+			entryTokens = Arrays.copyOf(entryTokens, entryCount * 2);
+		}
+
+		entryFrames[entryCount] = frame;
+		entryTokens[entryCount] = token;
+		entryCount++;
+		isFrameToken[token] = true;
+	}
+
+	public void linkChildFrame(int token, int parentFrame, int childFrame) {
+		hasChildFrame[token] = true;
+		parentFrames[token] = parentFrame;
+		childFrames[token] = childFrame;
+	}
+
+	/**
+	 * Groups the added tokens by frame, in sentence order. Must be called
+	 * once all frames and tokens have been added.
+	 */
+	public void finish() {
+		frameOffsets = new int[frameCount + 1];
+		frameTokens = new int[entryCount];
+
+		for(int i=0; i<entryCount; i++) {
+			frameOffsets[entryFrames[i] + 1]++;
+		}
+		for(int frame=0; frame<frameCount; frame++) {
+			frameOffsets[frame + 1] += frameOffsets[frame];
+		}
+
+		int[] positions = Arrays.copyOf(frameOffsets, frameCount);
+		for(int i=0; i<entryCount; i++) {
+			frameTokens[positions[entryFrames[i]]++] = entryTokens[i];
+		}
+
+		for(int frame=0; frame<frameCount; frame++) {
+			Arrays.sort(frameTokens, frameOffsets[frame], frameOffsets[frame + 1]);
+		}
+	}
+
+	public int getFrameCount() {
+		return frameCount;
+	}
+
+	public long getFrameId(int frame) {
+		return frameIds[frame];
+	}
+
+	public int getTokenCount(int frame) {
+		return frameOffsets[frame + 1] - frameOffsets[frame];
+	}
+
+	public int getToken(int frame, int index) {
+		return frameTokens[frameOffsets[frame] + index];
+	}
+
+	/**
+	 * Returns true if the token is part of any frame of the sentence.
+	 */
+	public boolean isFrameToken(int token) {
+		return isFrameToken[token];
+	}
+
+	/**
+	 * Returns true if the token stands for a nested frame within the given
+	 * frame.
+	 */
+	public boolean hasChildFrame(int token, int frame) {
+		return hasChildFrame[token] && parentFrames[token] == frame;
+	}
+
+	public long getChildFrameId(int token) {
+		return frameIds[childFrames[token]];
+	}
+}
\ No newline at end of file
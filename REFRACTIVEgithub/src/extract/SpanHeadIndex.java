@@ -0,0 +1,109 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package extract;
+
+import io.conll.CoNLLSentence;
+import io.conll.CoNLLSpans;
+
+import java.util.Arrays;
+
+/**
+ * Maps the tokens of a sentence to the named entity and coreference spans
+ * they are the head of. The head of a span is its first token whose parent
+ * lies outside the span. The index is built once per sentence so that span
+ * lookups for frame tokens take constant time.
+ */
+public class SpanHeadIndex {
+	private int[] namedEntityLabels;
+	private int[] coreferenceLabels;
+	private int namedEntityHeadCount;
+	private int[] namedEntityHeads;
+
+	public SpanHeadIndex(CoNLLSentence sentence) {
+		int tokenCount = sentence.getTokenCount();
+
+		namedEntityLabels = new int[tokenCount + 1];
+		coreferenceLabels = new int[tokenCount + 1];
+		Arrays.fill(namedEntityLabels, CoNLLSentence.NONE);
+		Arrays.fill(coreferenceLabels, CoNLLSentence.NONE);
+
+		CoNLLSpans spans = sentence.getNamedEntitySpans();
+		namedEntityHeads = new int[spans.getCount()];
+
+		for(int span=0; span<spans.getCount(); span++) {
+			int headToken = getHeadToken(sentence, spans, span);
+			if(headToken != CoNLLSentence.NONE) {
+				// Later spans take precedence for named entities
+				namedEntityLabels[headToken] = spans.getLabel(span);
+				namedEntityHeads[namedEntityHeadCount++] = headToken;
+			}
+		}
+
+		spans = sentence.getCoreferenceSpans();
+
+		for(int span=0; span<spans.getCount(); span++) {
+			int headToken = getHeadToken(sentence, spans, span);
+			if(headToken != CoNLLSentence.NONE && coreferenceLabels[headToken] == CoNLLSentence.NONE) {
+				// Earlier spans take precedence for coreferences
+				coreferenceLabels[headToken] = spans.getLabel(span);
+			}
+		}
+	}
+
+	/**
+	 * Returns the label of the named entity the token is the head of, or
+	 * {@link CoNLLSentence#NONE}.
+	 */
+	public int getNamedEntityLabel(int token) {
+		return namedEntityLabels[token];
+	}
+
+	/**
+	 * Returns the label of the coreference chain the token is the head of a
+	 * mention of, or {@link CoNLLSentence#NONE}.
+	 */
+	public int getCoreferenceLabel(int token) {
+		return coreferenceLabels[token];
+	}
+
+	public int getNamedEntityHeadCount() {
+		return namedEntityHeadCount;
+	}
+
+	public int getNamedEntityHead(int index) {
+		return namedEntityHeads[index];
+	}
+
+	private static int getHeadToken(CoNLLSentence sentence, CoNLLSpans spans, int span) {
+		int start = spans.getStart(span);
+		int end = spans.getEnd(span);
+
+		for(int token=start; token<=end; token++) {
+			int parentToken = sentence.getHead(token);
+
+			if(parentToken < start || parentToken > end) {
+				return token;
+			}
+		}
+
+		return CoNLLSentence.NONE;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,172 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+
+/**
+ * Reads frames from files written by {@link ColumnarFrameOutputFormat}. A
+ * split holds the blocks that start within it. If the relations of a job
+ * are set, only their columns are read; see {@link ColumnarFrameReader}.
+ */
+public class ColumnarFrameInputFormat extends FileInputFormat<LongWritable, Frame> {
+	/**
+	 * The setting holding the comma-separated relations to read.
+	 */
+	public static final String RELATIONS = "columnar.relations";
+
+	/**
+	 * Makes jobs read only the columns of the given relations.
+	 */
+	public static void setRelations(Configuration conf, Collection<String> relations) {
+		StringBuilder sb = new StringBuilder();
+		String separator = "";
+
+		for(String relation:relations) {
+			sb.append(separator);
+			sb.append(relation.toUpperCase());
+			separator = ",";
+		}
+
+		conf.set(RELATIONS, sb.toString());
+	}
+
+	/**
+	 * Returns the upper case relations to read, or <code>null</code> to read
+	 * all columns.
+	 */
+	public static Set<String> getRelations(Configuration conf) {
+		String relations = conf.get(RELATIONS);
+
+		if(relations == null) {
+			return null;
+		}
+
+		Set<String> relationSet = new HashSet<String>();
+		for(String relation:relations.split(",")) {
+			if(relation.length() > 0) {
+				relationSet.add(relation);
+			}
+		}
+
+		return relationSet;
+	}
+
+	@Override
+	public RecordReader<LongWritable, Frame> createRecordReader(InputSplit split, TaskAttemptContext context) {
+		return new ColumnarFrameRecordReader();
+	}
+
+	private static class ColumnarFrameRecordReader extends RecordReader<LongWritable, Frame> {
+		private ColumnarFrameReader reader;
+		private int firstBlock;
+		private int endBlock;
+		private int block;
+		private boolean hasBlock;
+		private final LongWritable key = new LongWritable();
+		private final Frame frame = new Frame();
+
+		@Override
+		public void initialize(InputSplit inputSplit, TaskAttemptContext context) throws IOException {
+			FileSplit split = (FileSplit)inputSplit;
+			Configuration conf = context.getConfiguration();
+			Path path = split.getPath();
+			FileSystem fs = path.getFileSystem(conf);
+
+			reader = new ColumnarFrameReader(fs, path, conf, getRelations(conf));
+
+			long start = split.getStart();
+			long end = start + split.getLength();
+
+			firstBlock = 0;
+			while(firstBlock < reader.getBlockCount() && reader.getBlockOffset(firstBlock) < start) {
+				firstBlock++;
+			}
+
+			endBlock = firstBlock;
+			while(endBlock < reader.getBlockCount() && reader.getBlockOffset(endBlock) < end) {
+				endBlock++;
+			}
+
+			block = firstBlock;
+		}
+
+		@Override
+		public boolean nextKeyValue() throws IOException {
+			while(true) {
+				if(hasBlock && reader.next(key, frame)) {
+					return true;
+				}
+
+				if(hasBlock) {
+					block++;
+				}
+
+				if(block >= endBlock) {
+					hasBlock = false;
+					return false;
+				}
+
+				reader.seekBlock(block);
+				hasBlock = true;
+			}
+		}
+
+		@Override
+		public LongWritable getCurrentKey() {
+			return key;
+		}
+
+		@Override
+		public Frame getCurrentValue() {
+			return frame;
+		}
+
+		@Override
+		public float getProgress() {
+			if(endBlock == firstBlock) {
+				return 1.0f;
+			}
+
+			return (float)(block - firstBlock) / (endBlock - firstBlock);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if(reader != null) {
+				reader.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,64 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * Writes frames with a {@link ColumnarFrameWriter}, compressing the columns
+ * with the output compression codec of the job, or with the default codec
+ * if none is set.
+ */
+public class ColumnarFrameOutputFormat extends FileOutputFormat<LongWritable, Frame> {
+	@Override
+	public RecordWriter<LongWritable, Frame> getRecordWriter(TaskAttemptContext context) throws IOException {
+		Configuration conf = context.getConfiguration();
+		Class<? extends CompressionCodec> codecClass = getOutputCompressorClass(context, DefaultCodec.class);
+		CompressionCodec codec = ReflectionUtils.newInstance(codecClass, conf);
+
+		Path file = getDefaultWorkFile(context, "");
+		FileSystem fs = file.getFileSystem(conf);
+		final ColumnarFrameWriter writer = new ColumnarFrameWriter(fs.create(file, false), codec, conf);
+
+		return new RecordWriter<LongWritable, Frame>() {
+			@Override
+			public void write(LongWritable key, Frame frame) throws IOException {
+				writer.append(key.get(), frame);
+			}
+
+			@Override
+			public void close(TaskAttemptContext context) throws IOException {
+				writer.close();
+			}
+		};
+	}
+}
@@ -0,0 +1,343 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.io.compress.CodecPool;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionInputStream;
+import org.apache.hadoop.io.compress.Decompressor;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * Reads frames written by a {@link ColumnarFrameWriter}. A reader can be
+ * given the relations it needs, in which case only their columns are read
+ * and decompressed, frames only hold the slots of those relations, and
+ * frames without any such slot are skipped. Relations are matched ignoring
+ * case, as in a {@link query.SlotQuery}.
+ * <p>
+ * The slots of a frame are reused for the next frame.
+ */
+public class ColumnarFrameReader implements Closeable {
+	/**
+	 * The position and lengths of a column within a block.
+	 */
+	private static class ColumnChunk {
+		final String relation;
+		final long offset;
+		final int length;
+		final int rawLength;
+
+		ColumnChunk(String relation, long offset, int length, int rawLength) {
+			this.relation = relation;
+			this.offset = offset;
+			this.length = length;
+			this.rawLength = rawLength;
+		}
+	}
+
+	/**
+	 * A block as given by the footer, its first two chunks being the keys
+	 * and the frame ids.
+	 */
+	private static class Block {
+		final long offset;
+		final int frameCount;
+		final ColumnChunk[] chunks;
+
+		Block(long offset, int frameCount, ColumnChunk[] chunks) {
+			this.offset = offset;
+			this.frameCount = frameCount;
+			this.chunks = chunks;
+		}
+	}
+
+	/**
+	 * A column being read, positioned at the entry of its next slot.
+	 */
+	private static class ColumnCursor {
+		final DataInputBuffer input = new DataInputBuffer();
+		byte[] data = new byte[0];
+		Slot relationSlot;
+		int nextFrame;
+	}
+
+	private final FSDataInputStream in;
+	private final CompressionCodec codec;
+	private final Decompressor decompressor;
+	private final Set<String> relations;
+	private final List<Block> blocks;
+
+	private final Map<String, Boolean> isRelationSelected = new HashMap<String, Boolean>();
+	private final Map<String, Slot> relationSlots = new HashMap<String, Slot>();
+	private final ColumnCursor keys = new ColumnCursor();
+	private final ColumnCursor frameIds = new ColumnCursor();
+	private final List<ColumnCursor> columns = new ArrayList<ColumnCursor>();
+	private int columnCount;
+	private byte[] compressed = new byte[0];
+
+	private Block block;
+	private int frame;
+	private long key;
+	private long frameId;
+	private final List<Slot> slotPool = new ArrayList<Slot>();
+	private Slot[] slotsByPosition = new Slot[32];
+
+	/**
+	 * Opens a file, reading only the columns of the given upper case
+	 * relations, or all columns if the relations are <code>null</code>.
+	 */
+	public ColumnarFrameReader(FileSystem fs, Path path, Configuration conf, Set<String> relations) throws IOException {
+		long fileLength = fs.getFileStatus(path).getLen();
+		this.in = fs.open(path);
+		this.relations = relations;
+
+		try {
+			if(in.readInt() != ColumnarFrameWriter.MAGIC) {
+				throw new IOException("Not a columnar frame file: " + path);
+			}
+			int version = in.readUnsignedByte();
+			if(version != ColumnarFrameWriter.VERSION) {
+				throw new IOException("Unknown columnar frame file version: " + version);
+			}
+			this.codec = (CompressionCodec)ReflectionUtils.newInstance(conf.getClassByName(Text.readString(in)), conf);
+			this.blocks = readFooter(fileLength, path);
+		} catch(IOException e) {
+			IOUtils.closeStream(in);
+			throw e;
+		} catch(ClassNotFoundException e) {
+			IOUtils.closeStream(in);
+			throw new IOException("Unknown compression codec in " + path + ": " + e.getMessage());
+		}
+
+		this.decompressor = CodecPool.getDecompressor(codec);
+	}
+
+	private List<Block> readFooter(long fileLength, Path path) throws IOException {
+		in.seek(fileLength - 12);
+		long footerOffset = in.readLong();
+		if(in.readInt() != ColumnarFrameWriter.MAGIC) {
+			throw new IOException("Missing footer in columnar frame file: " + path);
+		}
+
+		in.seek(footerOffset);
+		int blockCount = WritableUtils.readVInt(in);
+		List<Block> blocks = new ArrayList<Block>(blockCount);
+
+		for(int i=0; i<blockCount; i++) {
+			long blockOffset = WritableUtils.readVLong(in);
+			int frameCount = WritableUtils.readVInt(in);
+			ColumnChunk[] chunks = new ColumnChunk[WritableUtils.readVInt(in) + 2];
+			long chunkOffset = blockOffset;
+
+			for(int j=0; j<chunks.length; j++) {
+				String relation = (j < 2) ? null : Text.readString(in);
+				int length = WritableUtils.readVInt(in);
+				int rawLength = WritableUtils.readVInt(in);
+
+				chunks[j] = new ColumnChunk(relation, chunkOffset, length, rawLength);
+				chunkOffset += length;
+			}
+
+			blocks.add(new Block(blockOffset, frameCount, chunks));
+		}
+
+		return blocks;
+	}
+
+	public int getBlockCount() {
+		return blocks.size();
+	}
+
+	public long getBlockOffset(int block) {
+		return blocks.get(block).offset;
+	}
+
+	/**
+	 * Makes the given block the current one, reading its keys, frame ids and
+	 * selected columns.
+	 */
+	public void seekBlock(int blockIndex) throws IOException {
+		block = blocks.get(blockIndex);
+		frame = 0;
+		key = 0;
+		frameId = 0;
+		columnCount = 0;
+
+		readChunk(block.chunks[0], keys);
+		readChunk(block.chunks[1], frameIds);
+
+		for(int i=2; i<block.chunks.length; i++) {
+			ColumnChunk chunk = block.chunks[i];
+
+			if(isSelected(chunk.relation)) {
+				if(columnCount == columns.size()) {
+					columns.add(new ColumnCursor());
+				}
+
+				ColumnCursor column = columns.get(columnCount++);
+				column.relationSlot = getRelationSlot(chunk.relation);
+				readChunk(chunk, column);
+				column.nextFrame = WritableUtils.readVInt(column.input);
+			}
+		}
+	}
+
+	/**
+	 * Reads the next frame of the current block. Returns false at the end of
+	 * the block.
+	 */
+	public boolean next(LongWritable key, Frame frame) throws IOException {
+		while(this.frame < block.frameCount) {
+			int currentFrame = this.frame++;
+			this.key += WritableUtils.readVLong(keys.input);
+			this.frameId += WritableUtils.readVLong(frameIds.input);
+
+			int slotCount = 0;
+			int maxPosition = -1;
+
+			for(int i=0; i<columnCount; i++) {
+				ColumnCursor column = columns.get(i);
+
+				while(column.nextFrame == currentFrame) {
+					int positionAndFlag = WritableUtils.readVInt(column.input);
+					int position = positionAndFlag >>> 1;
+					Slot slot = nextSlot(slotCount++);
+
+					slot.setRelation(column.relationSlot.getBaseRelation(), column.relationSlot.getKind(), column.relationSlot.getSemanticLabel());
+					slot.readValue(column.input);
+					slot.setIsProperNoun((positionAndFlag & 1) != 0);
+
+					if(position >= slotsByPosition.length) {
+						slotsByPosition = Arrays.copyOf(slotsByPosition, Math.max(position + 1, slotsByPosition.length * 2));
+					}
+					slotsByPosition[position] = slot;
+					maxPosition = Math.max(maxPosition, position);
+
+					if(column.input.getPosition() < column.input.getLength()) {
+						column.nextFrame += WritableUtils.readVInt(column.input);
+					} else {
+						column.nextFrame = Integer.MAX_VALUE;
+					}
+				}
+			}
+
+			if(slotCount == 0 && relations != null) {
+				continue;
+			}
+
+			key.set(this.key);
+			frame.setFrameId(this.frameId);
+			frame.getSlots().clear();
+
+			for(int position=0; position<=maxPosition; position++) {
+				if(slotsByPosition[position] != null) {
+					frame.getSlots().add(slotsByPosition[position]);
+					slotsByPosition[position] = null;
+				}
+			}
+
+			return true;
+		}
+
+		return false;
+	}
+
+	private boolean isSelected(String relation) {
+		if(relations == null) {
+			return true;
+		}
+
+		Boolean selected = isRelationSelected.get(relation);
+
+		if(selected == null) {
+			selected = relations.contains(relation.toUpperCase());
+			isRelationSelected.put(relation, selected);
+		}
+
+		return selected;
+	}
+
+	/**
+	 * Returns a slot holding the parts of a relation, so that the relation
+	 * string of a column is only split once.
+	 */
+	private Slot getRelationSlot(String relation) {
+		Slot slot = relationSlots.get(relation);
+
+		if(slot == null) {
+			slot = new Slot();
+			slot.setRelation(relation);
+			relationSlots.put(relation, slot);
+		}
+
+		return slot;
+	}
+
+	private Slot nextSlot(int index) {
+		if(index == slotPool.size()) {
+			slotPool.add(new Slot());
+		}
+
+		return slotPool.get(index);
+	}
+
+	private void readChunk(ColumnChunk chunk, ColumnCursor column) throws IOException {
+		if(compressed.length < chunk.length) {
+			compressed = new byte[chunk.length];
+		}
+		if(column.data.length < chunk.rawLength) {
+			column.data = new byte[chunk.rawLength];
+		}
+
+		in.readFully(chunk.offset, compressed, 0, chunk.length);
+
+		decompressor.reset();
+		CompressionInputStream decompressionStream = codec.createInputStream(new ByteArrayInputStream(compressed, 0, chunk.length), decompressor);
+		IOUtils.readFully(decompressionStream, column.data, 0, chunk.rawLength);
+
+		column.input.reset(column.data, chunk.rawLength);
+	}
+
+	@Override
+	public void close() throws IOException {
+		CodecPool.returnDecompressor(decompressor);
+		in.close();
+	}
+}
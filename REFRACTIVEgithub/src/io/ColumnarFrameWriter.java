@@ -0,0 +1,189 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.io.compress.CodecPool;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionOutputStream;
+import org.apache.hadoop.io.compress.Compressor;
+
+/**
+ * Writes frames column-wise, so that a reader only needs the bytes of the
+ * relations it asks for.
+ * <p>
+ * Frames are collected into blocks. Within a block, the slots of every
+ * relation form a column. A column holds one entry per slot: the distance
+ * to the frame of the previous entry, the position of the slot in its frame
+ * together with its proper noun flag, and the value. Two more columns hold
+ * the keys and the frame ids of the block as deltas. Each column is
+ * compressed on its own.
+ * <p>
+ * The file starts with a magic number, the format version and the name of
+ * the compression codec. It ends with a footer indexing every block: its
+ * offset, its frame count and the relation and lengths of its columns. The
+ * footer is followed by its own offset and the magic number.
+ */
+public class ColumnarFrameWriter implements Closeable {
+	static final int MAGIC = 0x52464346;
+	static final int VERSION = 1;
+
+	/**
+	 * The setting holding the number of uncompressed bytes after which a
+	 * block is written.
+	 */
+	public static final String BLOCK_SIZE = "columnar.block.size";
+	public static final int DEFAULT_BLOCK_SIZE = 4 << 20;
+
+	/**
+	 * The slots of one relation within a block.
+	 */
+	private static class Column {
+		final DataOutputBuffer data = new DataOutputBuffer();
+		int lastFrame;
+	}
+
+	private final FSDataOutputStream out;
+	private final CompressionCodec codec;
+	private final Compressor compressor;
+	private final int blockSize;
+
+	private final DataOutputBuffer keys = new DataOutputBuffer();
+	private final DataOutputBuffer frameIds = new DataOutputBuffer();
+	private final Map<String, Column> columns = new TreeMap<String, Column>();
+	private final DataOutputBuffer compressed = new DataOutputBuffer();
+	private final DataOutputBuffer footer = new DataOutputBuffer();
+	private long lastKey;
+	private long lastFrameId;
+	private int frameCount;
+	private long blockBytes;
+	private int blockCount;
+
+	public ColumnarFrameWriter(FSDataOutputStream out, CompressionCodec codec, Configuration conf) throws IOException {
+		this.out = out;
+		this.codec = codec;
+		this.compressor = CodecPool.getCompressor(codec);
+		this.blockSize = conf.getInt(BLOCK_SIZE, DEFAULT_BLOCK_SIZE);
+
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+		Text.writeString(out, codec.getClass().getName());
+	}
+
+	public void append(long key, Frame frame) throws IOException {
+		int headerBytes = keys.getLength() + frameIds.getLength();
+		WritableUtils.writeVLong(keys, key - lastKey);
+		WritableUtils.writeVLong(frameIds, frame.getFrameId() - lastFrameId);
+		lastKey = key;
+		lastFrameId = frame.getFrameId();
+		blockBytes += keys.getLength() + frameIds.getLength() - headerBytes;
+
+		for(int i=0; i<frame.getSlots().size(); i++) {
+			Slot slot = frame.getSlots().get(i);
+			Column column = columns.get(slot.getRelation());
+
+			if(column == null) {
+				column = new Column();
+				columns.put(slot.getRelation(), column);
+			}
+
+			int columnBytes = column.data.getLength();
+			WritableUtils.writeVInt(column.data, frameCount - column.lastFrame);
+			WritableUtils.writeVInt(column.data, (i << 1) | (slot.getIsProperNoun() ? 1 : 0));
+			slot.writeValue(column.data);
+			column.lastFrame = frameCount;
+			blockBytes += column.data.getLength() - columnBytes;
+		}
+
+		frameCount++;
+
+		if(blockBytes >= blockSize) {
+			writeBlock();
+		}
+	}
+
+	private void writeBlock() throws IOException {
+		WritableUtils.writeVLong(footer, out.getPos());
+		WritableUtils.writeVInt(footer, frameCount);
+		WritableUtils.writeVInt(footer, columns.size());
+
+		writeColumn(keys);
+		writeColumn(frameIds);
+
+		for(Map.Entry<String, Column> entry:columns.entrySet()) {
+			Text.writeString(footer, entry.getKey());
+			writeColumn(entry.getValue().data);
+		}
+
+		keys.reset();
+		frameIds.reset();
+		columns.clear();
+		lastKey = 0;
+		lastFrameId = 0;
+		frameCount = 0;
+		blockBytes = 0;
+		blockCount++;
+	}
+
+	/**
+	 * Compresses a column to the file and adds its lengths to the footer.
+	 */
+	private void writeColumn(DataOutputBuffer column) throws IOException {
+		compressed.reset();
+		compressor.reset();
+
+		CompressionOutputStream compressionStream = codec.createOutputStream(compressed, compressor);
+		compressionStream.write(column.getData(), 0, column.getLength());
+		compressionStream.finish();
+
+		out.write(compressed.getData(), 0, compressed.getLength());
+
+		WritableUtils.writeVInt(footer, compressed.getLength());
+		WritableUtils.writeVInt(footer, column.getLength());
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			if(frameCount > 0) {
+				writeBlock();
+			}
+
+			long footerOffset = out.getPos();
+			WritableUtils.writeVInt(out, blockCount);
+			out.write(footer.getData(), 0, footer.getLength());
+			out.writeLong(footerOffset);
+			out.writeInt(MAGIC);
+		} finally {
+			CodecPool.returnCompressor(compressor);
+			out.close();
+		}
+	}
+}
@@ -1,108 +1,364 @@
-/**
- * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
- * Copyright © 2013 Peter Exner
- * 
- * This file is part of Refractive.
- *
- * Refractive is free software: you can redistribute it and/or modify
- * it under the terms of the GNU General Public License as published by
- * the Free Software Foundation, either version 3 of the License, or
- * (at your option) any later version.
- *
- * Refractive is distributed in the hope that it will be useful,
- * but WITHOUT ANY WARRANTY; without even the implied warranty of
- * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
- * GNU General Public License for more details.
- *
- * You should have received a copy of the GNU General Public License
- * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
- */
-
-package io;
-
-import java.io.DataInput;
-import java.io.DataOutput;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-
-import org.apache.hadoop.io.Writable;
-
-public class Frame implements Writable {
-	private long frameId;
-	private List<Slot> slots;
-
-	public Frame() {
-		this.slots = new ArrayList<Slot>();
-	}
-	
-	public long getFrameId() {
-		return frameId;
-	}
-
-	public void setFrameId(long frameId) {
-		this.frameId = frameId;
-	}
-	
-	public List<Slot> getSlots() {
-		return slots;
-	}
-
-	public void setSlots(List<Slot> slots) {
-		this.slots = slots;
-	}
-		
-	@Override
-	public String toString() {
-		StringBuilder sb = new StringBuilder();
-		String separator = ""; 
-		
-		sb.append("{");
-		
-		for(Slot slot:slots) {
-			sb.append(separator);
-			sb.append(slot.toString());
-			separator = "\t";
-		}
-		
-		sb.append("}");
-		
-		return sb.toString();
-	}
-	
-	public String toSlotValues() {
-		StringBuilder sb = new StringBuilder();
-		String separator = ""; 
-		
-		for(Slot slot:slots) {
-			sb.append(separator);
-			sb.append(slot.getValue());
-			separator = " ";
-		}
-		
-		return sb.toString();
-	}
-
-	@Override
-	public void readFields(DataInput in) throws IOException {
-		slots.clear();
-		
-		int numberOfSlots = in.readInt();
-		
-		Slot slot;
-		for(int i=0; i<numberOfSlots; i++) {
-			slot = new Slot();
-			slot.readFields(in);
-			slots.add(slot);
-		}
-	}
-
-	@Override
-	public void write(DataOutput out) throws IOException {
-		out.writeInt(slots.size());
-		
-		for(Slot slot:slots) {
-			slot.write(out);
-		}
-	}
-}
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * A frame and its slots. Frames are written in a compact format: a version
+ * marker, the frame id, the slot count, a bitmask of the proper noun flags
+ * and, for every slot, the parts of its relation and its value, all with
+ * variable-length integers. A slot starts with a header holding the
+ * {@link RelationDictionary} id of its base relation (or 0 if the base
+ * relation follows spelled out), a semantic label flag and the kind of the
+ * slot; the semantic label, if any, is written the same way as the base
+ * relation. The marker has its high bit set, which the slot count of the
+ * original format written by <code>writeInt</code> never has, so frames in
+ * any of the formats can be read.
+ * <p>
+ * A frame that is read over and over, such as the value of a record reader,
+ * can be put in reuse mode. It then keeps its slots from one record to the
+ * next and reads into them, so that scanning frames allocates next to
+ * nothing. The slots of a frame in reuse mode are only valid until the next
+ * record is read.
+ * <p>
+ * A frame also keeps a relation mask, with the bits of the relations of its
+ * slots, that lets a query reject a frame lacking one of its relations
+ * without looking at the slots. The mask is filled in while reading and
+ * computed on demand otherwise. Slots are handed out for changes by
+ * {@link #getSlots()}, which therefore drops the mask; changing the
+ * relation of a slot in place requires calling it again.
+ */
+public class Frame implements Writable {
+	private static final int FORMAT_MARKER = 0x80;
+	private static final int FORMAT_VERSION = 2;
+	private static final int SEMANTIC_LABEL_FLAG = 0x4;
+	private static final int KIND_MASK = 0x3;
+	private static final int RELATION_SHIFT = 3;
+
+	private long frameId;
+	private int height;
+	private List<Slot> slots;
+	private boolean reuseSlots;
+	private List<Slot> slotPool;
+	private byte[] properNouns = new byte[8];
+	private Text relationBytes;
+	private Map<Text, Integer> inlineRelations;
+	private long relationMask;
+	private boolean hasRelationMask;
+
+	public Frame() {
+		this.slots = new ArrayList<Slot>();
+	}
+	
+	public long getFrameId() {
+		return frameId;
+	}
+
+	public void setFrameId(long frameId) {
+		this.frameId = frameId;
+	}
+	
+	/**
+	 * The height the frame was extracted with. It is not serialized, frames
+	 * of different heights are written to separate outputs.
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	public void setHeight(int height) {
+		this.height = height;
+	}
+
+	public boolean getReuseSlots() {
+		return reuseSlots;
+	}
+
+	/**
+	 * Turns reuse mode on or off. In reuse mode, reading a frame overwrites
+	 * the slots read before instead of creating new ones.
+	 */
+	public void setReuseSlots(boolean reuseSlots) {
+		if(reuseSlots && slotPool == null) {
+			slotPool = new ArrayList<Slot>();
+		}
+
+		this.reuseSlots = reuseSlots;
+	}
+
+	public List<Slot> getSlots() {
+		hasRelationMask = false;
+		return slots;
+	}
+
+	public void setSlots(List<Slot> slots) {
+		hasRelationMask = false;
+		this.slots = slots;
+	}
+
+	public int getSlotCount() {
+		return slots.size();
+	}
+
+	/**
+	 * Returns a slot for reading, unlike {@link #getSlots()} keeping the
+	 * relation mask.
+	 */
+	public Slot getSlot(int index) {
+		return slots.get(index);
+	}
+
+	/**
+	 * Returns the bits of the relations of the slots, as given by
+	 * {@link Slot#getRelationBit()}.
+	 */
+	public long getRelationMask() {
+		if(!hasRelationMask) {
+			relationMask = 0;
+			for(int i=0; i<slots.size(); i++) {
+				relationMask |= slots.get(i).getRelationBit();
+			}
+			hasRelationMask = true;
+		}
+
+		return relationMask;
+	}
+		
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		String separator = ""; 
+		
+		sb.append("{");
+		
+		for(Slot slot:slots) {
+			sb.append(separator);
+			sb.append(slot.toString());
+			separator = "\t";
+		}
+		
+		sb.append("}");
+		
+		return sb.toString();
+	}
+	
+	public String toSlotValues() {
+		StringBuilder sb = new StringBuilder();
+		String separator = ""; 
+		
+		for(Slot slot:slots) {
+			sb.append(separator);
+			sb.append(slot.getValue());
+			separator = " ";
+		}
+		
+		return sb.toString();
+	}
+
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		slots.clear();
+		hasRelationMask = false;
+
+		int marker = in.readUnsignedByte();
+
+		if((marker & FORMAT_MARKER) == 0) {
+			readLegacyFields(marker, in);
+			return;
+		}
+
+		int version = marker & ~FORMAT_MARKER;
+
+		if(version != FORMAT_VERSION) {
+			throw new IOException("Unknown frame format version: " + version);
+		}
+
+		frameId = WritableUtils.readVLong(in);
+		readSlots(in);
+	}
+
+	/**
+	 * Reads the slots of a frame in the compact format, i.e. everything that
+	 * follows the frame id.
+	 */
+	void readSlots(DataInput in) throws IOException {
+		slots.clear();
+
+		int numberOfSlots = WritableUtils.readVInt(in);
+		int properNounBytes = (numberOfSlots + 7) / 8;
+		if(properNouns.length < properNounBytes) {
+			properNouns = new byte[properNounBytes];
+		}
+		in.readFully(properNouns, 0, properNounBytes);
+
+		relationMask = 0;
+		Slot slot;
+		for(int i=0; i<numberOfSlots; i++) {
+			slot = nextSlot(i);
+			readRelation(slot, in);
+			slot.readValue(in);
+			slot.setIsProperNoun((properNouns[i >> 3] & (1 << (i & 7))) != 0);
+			relationMask |= slot.getRelationBit();
+			slots.add(slot);
+		}
+		hasRelationMask = true;
+	}
+
+	/**
+	 * Returns the slot to read the slot with the given index into: a new
+	 * slot, or in reuse mode the slot of the pool with that index.
+	 */
+	Slot nextSlot(int index) {
+		if(!reuseSlots) {
+			return new Slot();
+		}
+
+		if(index == slotPool.size()) {
+			slotPool.add(new Slot());
+		}
+
+		return slotPool.get(index);
+	}
+
+	private void readRelation(Slot slot, DataInput in) throws IOException {
+		int header = WritableUtils.readVInt(in);
+		int baseRelation = readRelationPart(header >>> RELATION_SHIFT, in);
+		int semanticLabel = RelationPool.NONE;
+
+		if((header & SEMANTIC_LABEL_FLAG) != 0) {
+			semanticLabel = readRelationPart(WritableUtils.readVInt(in), in);
+		}
+
+		slot.setRelation(baseRelation, Slot.Kind.fromOrdinal(header & KIND_MASK), semanticLabel);
+	}
+
+	/**
+	 * Reads a relation part and returns its {@link RelationPool} id. Parts
+	 * that are spelled out, such as predicate senses, are looked up by their
+	 * bytes in a cache of the frame, so that a part is only decoded the
+	 * first time it is seen.
+	 */
+	private int readRelationPart(int id, DataInput in) throws IOException {
+		if(id == RelationDictionary.NONE) {
+			if(inlineRelations == null) {
+				relationBytes = new Text();
+				inlineRelations = new HashMap<Text, Integer>();
+			}
+
+			relationBytes.readFields(in);
+			Integer relation = inlineRelations.get(relationBytes);
+
+			if(relation == null) {
+				relation = RelationPool.intern(relationBytes.toString());
+				inlineRelations.put(new Text(relationBytes), relation);
+			}
+
+			return relation;
+		} else if(RelationDictionary.contains(id)) {
+			return RelationDictionary.getRelation(id);
+		} else {
+			throw new IOException("Unknown relation id: " + id);
+		}
+	}
+
+	/**
+	 * Reads a frame written by <code>writeInt</code> and {@link Slot#write},
+	 * the first byte of which has already been read. Such frames carry no
+	 * frame id.
+	 */
+	private void readLegacyFields(int firstByte, DataInput in) throws IOException {
+		frameId = 0;
+
+		int numberOfSlots = (firstByte << 24) | (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+
+		Slot slot;
+		for(int i=0; i<numberOfSlots; i++) {
+			slot = nextSlot(i);
+			slot.readFields(in);
+			slots.add(slot);
+		}
+	}
+
+	@Override
+	public void write(DataOutput out) throws IOException {
+		out.writeByte(FORMAT_MARKER | FORMAT_VERSION);
+		WritableUtils.writeVLong(out, frameId);
+		writeSlots(out);
+	}
+
+	/**
+	 * Writes the slots of the frame in the current compact format, i.e.
+	 * everything that follows the frame id.
+	 */
+	void writeSlots(DataOutput out) throws IOException {
+		WritableUtils.writeVInt(out, slots.size());
+
+		int properNounBytes = (slots.size() + 7) / 8;
+		if(properNouns.length < properNounBytes) {
+			properNouns = new byte[properNounBytes];
+		}
+		Arrays.fill(properNouns, 0, properNounBytes, (byte)0);
+		for(int i=0; i<slots.size(); i++) {
+			if(slots.get(i).getIsProperNoun()) {
+				properNouns[i >> 3] |= 1 << (i & 7);
+			}
+		}
+		out.write(properNouns, 0, properNounBytes);
+
+		for(int i=0; i<slots.size(); i++) {
+			Slot slot = slots.get(i);
+			int baseRelationId = RelationDictionary.getId(slot.getBaseRelation());
+			int header = (baseRelationId << RELATION_SHIFT) | slot.getKind().ordinal();
+
+			if(slot.getSemanticLabel() != RelationPool.NONE) {
+				header |= SEMANTIC_LABEL_FLAG;
+			}
+
+			WritableUtils.writeVInt(out, header);
+			if(baseRelationId == RelationDictionary.NONE) {
+				Text.writeString(out, RelationPool.get(slot.getBaseRelation()));
+			}
+
+			if(slot.getSemanticLabel() != RelationPool.NONE) {
+				int semanticLabelId = RelationDictionary.getId(slot.getSemanticLabel());
+
+				WritableUtils.writeVInt(out, semanticLabelId);
+				if(semanticLabelId == RelationDictionary.NONE) {
+					Text.writeString(out, RelationPool.get(slot.getSemanticLabel()));
+				}
+			}
+
+			slot.writeValue(out);
+		}
+	}
+}
@@ -0,0 +1,197 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+
+/**
+ * A relation-id codec: the corpus-wide ids of slot relations, used to
+ * convert frames to and from {@link IntFrame}s. Only relations are encoded. A dictionary is stored in a directory holding the file
+ * <code>relations</code>, a sequence file of ids and relations in id order.
+ * Ids start at 1 and are given in order of decreasing frequency, so that
+ * frequent ids take a single byte.
+ * <p>
+ * A corpus has a few thousand relations at most, so a dictionary is small
+ * enough to be read by every task. Slot values are not given ids, as a
+ * dictionary of them would not fit in memory.
+ */
+public class FrameDictionary {
+	/**
+	 * The id of a relation that is not in the dictionary.
+	 */
+	public static final int NONE = 0;
+
+	/**
+	 * The setting holding the directory of the dictionary of a job.
+	 */
+	public static final String DICTIONARY = "dictionary";
+
+	public static final String RELATIONS_FILE = "relations";
+
+	private final String[] relations;
+	private final Slot[] relationSlots;
+	private final Map<String, Integer> relationIds;
+
+	public FrameDictionary(List<String> relations) {
+		this.relations = new String[relations.size() + 1];
+		this.relationIds = new HashMap<String, Integer>(relations.size() * 2);
+
+		for(int i=0; i<relations.size(); i++) {
+			this.relations[i + 1] = relations.get(i);
+			this.relationIds.put(relations.get(i), i + 1);
+		}
+
+		// Relations are split into their parts once, not for every slot
+		this.relationSlots = new Slot[this.relations.length];
+		for(int i=1; i<this.relations.length; i++) {
+			relationSlots[i] = new Slot();
+			relationSlots[i].setRelation(this.relations[i]);
+		}
+	}
+
+	public int getRelationCount() {
+		return relations.length - 1;
+	}
+
+	public int getRelationId(String relation) {
+		Integer id = relationIds.get(relation);
+
+		return (id == null) ? NONE : id;
+	}
+
+	public String getRelation(int id) {
+		return relations[id];
+	}
+
+	/**
+	 * Converts a frame to ids. Throws an <code>IOException</code> if a
+	 * relation of the frame is not in the dictionary, which means that the
+	 * dictionary was built from other frames.
+	 */
+	public void encode(Frame frame, IntFrame intFrame) throws IOException {
+		intFrame.clear();
+		intFrame.setFrameId(frame.getFrameId());
+
+		for(Slot slot:frame.getSlots()) {
+			int relation = getRelationId(slot.getRelation());
+
+			if(relation == NONE) {
+				throw new IOException("Relation not in dictionary: " + slot.getRelation());
+			}
+
+			intFrame.addSlot(relation, slot.getValueBytes(), slot.getIsProperNoun());
+		}
+	}
+
+	/**
+	 * Converts ids back to a frame. A frame in reuse mode reuses its slots,
+	 * as when it is read.
+	 */
+	public void decode(IntFrame intFrame, Frame frame) throws IOException {
+		List<Slot> slots = frame.getSlots();
+
+		slots.clear();
+		frame.setFrameId(intFrame.getFrameId());
+
+		for(int i=0; i<intFrame.getSlotCount(); i++) {
+			int relation = intFrame.getRelation(i);
+
+			if(relation <= NONE || relation >= relationSlots.length) {
+				throw new IOException("Relation id not in dictionary: " + relation);
+			}
+
+			Slot relationSlot = relationSlots[relation];
+			Slot slot = frame.nextSlot(i);
+
+			slot.setRelation(relationSlot.getBaseRelation(), relationSlot.getKind(), relationSlot.getSemanticLabel());
+			slot.setValueBytes(intFrame.getValue(i));
+			slot.setIsProperNoun(intFrame.isProperNoun(i));
+			slots.add(slot);
+		}
+	}
+
+	/**
+	 * Reads the dictionary stored in the given directory.
+	 */
+	public static FrameDictionary read(FileSystem fs, Path directory, Configuration conf) throws IOException {
+		return new FrameDictionary(readStrings(fs, new Path(directory, RELATIONS_FILE), conf));
+	}
+
+	/**
+	 * Reads the dictionary given by the {@link #DICTIONARY} setting of a job.
+	 */
+	public static FrameDictionary read(Configuration conf) throws IOException {
+		Path directory = new Path(conf.get(DICTIONARY));
+
+		return read(directory.getFileSystem(conf), directory, conf);
+	}
+
+	/**
+	 * Writes strings to a dictionary file, giving them ids in list order
+	 * starting at 1.
+	 */
+	public static void writeStrings(FileSystem fs, Path path, Configuration conf, List<String> strings) throws IOException {
+		SequenceFile.Writer writer = SequenceFile.createWriter(fs, conf, path, IntWritable.class, Text.class);
+		IntWritable id = new IntWritable();
+		Text text = new Text();
+
+		try {
+			for(int i=0; i<strings.size(); i++) {
+				id.set(i + 1);
+				text.set(strings.get(i));
+				writer.append(id, text);
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	private static List<String> readStrings(FileSystem fs, Path path, Configuration conf) throws IOException {
+		List<String> strings = new ArrayList<String>();
+		SequenceFile.Reader reader = new SequenceFile.Reader(fs, path, conf);
+		IntWritable id = new IntWritable();
+		Text text = new Text();
+
+		try {
+			while(reader.next(id, text)) {
+				if(id.get() != strings.size() + 1) {
+					throw new IOException("Unexpected id " + id.get() + " in " + path);
+				}
+				strings.add(text.toString());
+			}
+		} finally {
+			reader.close();
+		}
+
+		return strings;
+	}
+}
@@ -0,0 +1,248 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * A frame in binary form, used as a shuffle key in place of the string of a
+ * frame. A key holds either the full frame, i.e. the relations, values and
+ * proper noun flags of its slots, or only the values of its slots, but never
+ * the frame id, so that equal projections group together. Keys are compared
+ * byte by byte, and a registered raw comparator does so on the serialized
+ * keys without reading them.
+ * <p>
+ * A key also holds the index of the query it was made for, so that the
+ * results of several queries evaluated in one job never group together.
+ * <p>
+ * The order of keys is the order of their bytes, which is not the order of
+ * the frame strings.
+ * <p>
+ * A key is often kept by the thousands in a hash table, so it holds its
+ * bytes in a plain array, and only makes buffers for writing frames and
+ * reading slots when first asked to.
+ */
+public class FrameKey implements WritableComparable<FrameKey> {
+	private static final int FULL = 1;
+	private static final int SLOT_VALUES = 2;
+
+	private static final byte[] EMPTY = new byte[0];
+
+	private byte[] bytes = EMPTY;
+	private int length;
+	private DataOutputBuffer buffer;
+	private DataInputBuffer inputBuffer;
+
+	/**
+	 * Sets the key to the relations, values and proper noun flags of the
+	 * slots of a frame.
+	 */
+	public void set(Frame frame) throws IOException {
+		set(0, frame);
+	}
+
+	/**
+	 * Sets the key to the relations, values and proper noun flags of the
+	 * slots of a frame projected by the given query.
+	 */
+	public void set(int query, Frame frame) throws IOException {
+		DataOutputBuffer buffer = getBuffer();
+		WritableUtils.writeVInt(buffer, query);
+		buffer.writeByte(FULL);
+		frame.writeSlots(buffer);
+		setBytes(buffer);
+	}
+
+	/**
+	 * Sets the key to a copy of another key.
+	 */
+	public void set(FrameKey other) {
+		set(other.bytes, 0, other.length);
+	}
+
+	/**
+	 * Sets the key to a copy of the given key bytes. A key that only grows
+	 * to hold them gets an array of exactly their length.
+	 */
+	public void set(byte[] data, int offset, int length) {
+		if(bytes.length < length) {
+			bytes = new byte[length];
+		}
+
+		System.arraycopy(data, offset, bytes, 0, length);
+		this.length = length;
+	}
+
+	/**
+	 * Sets the key to the values of the slots of a frame.
+	 */
+	public void setSlotValues(Frame frame) throws IOException {
+		setSlotValues(0, frame);
+	}
+
+	/**
+	 * Sets the key to the values of the slots of a frame projected by the
+	 * given query.
+	 */
+	public void setSlotValues(int query, Frame frame) throws IOException {
+		DataOutputBuffer buffer = getBuffer();
+		WritableUtils.writeVInt(buffer, query);
+		buffer.writeByte(SLOT_VALUES);
+		WritableUtils.writeVInt(buffer, frame.getSlots().size());
+
+		for(Slot slot:frame.getSlots()) {
+			slot.writeValue(buffer);
+		}
+		setBytes(buffer);
+	}
+
+	private DataOutputBuffer getBuffer() {
+		if(buffer == null) {
+			buffer = new DataOutputBuffer();
+		}
+
+		buffer.reset();
+		return buffer;
+	}
+
+	/**
+	 * Makes the key bytes those written to the buffer, without copying them.
+	 */
+	private void setBytes(DataOutputBuffer buffer) {
+		bytes = buffer.getData();
+		length = buffer.getLength();
+	}
+
+	/**
+	 * Reads the slots of the key into a frame. The slots of a key that only
+	 * holds slot values have no relation and are not proper nouns.
+	 */
+	public void get(Frame frame) throws IOException {
+		if(inputBuffer == null) {
+			inputBuffer = new DataInputBuffer();
+		}
+
+		inputBuffer.reset(bytes, length);
+		WritableUtils.readVInt(inputBuffer);
+
+		int type = inputBuffer.readUnsignedByte();
+
+		if(type == FULL) {
+			frame.readSlots(inputBuffer);
+		} else {
+			frame.getSlots().clear();
+
+			int numberOfSlots = WritableUtils.readVInt(inputBuffer);
+			for(int i=0; i<numberOfSlots; i++) {
+				Slot slot = new Slot();
+				slot.readValue(inputBuffer);
+				slot.setIsProperNoun(false);
+				frame.getSlots().add(slot);
+			}
+		}
+	}
+
+	/**
+	 * Returns the index of the query the key was made for.
+	 */
+	public int getQuery() throws IOException {
+		return WritableComparator.readVInt(bytes, 0);
+	}
+
+	public byte[] getBytes() {
+		return bytes;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		int length = WritableUtils.readVInt(in);
+
+		if(bytes.length < length) {
+			bytes = new byte[Math.max(length, bytes.length * 2)];
+		}
+
+		in.readFully(bytes, 0, length);
+		this.length = length;
+	}
+
+	@Override
+	public void write(DataOutput out) throws IOException {
+		WritableUtils.writeVInt(out, length);
+		out.write(bytes, 0, length);
+	}
+
+	@Override
+	public int compareTo(FrameKey other) {
+		return WritableComparator.compareBytes(bytes, 0, length, other.bytes, 0, other.length);
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return (other instanceof FrameKey) && compareTo((FrameKey)other) == 0;
+	}
+
+	/**
+	 * Returns a hash of the key bytes that is the same in every JVM.
+	 */
+	@Override
+	public int hashCode() {
+		return WritableComparator.hashBytes(bytes, length);
+	}
+
+	/**
+	 * Compares serialized keys without reading them into objects.
+	 */
+	public static class Comparator extends WritableComparator {
+		public Comparator() {
+			super(FrameKey.class);
+		}
+
+		@Override
+		public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+			try {
+				int prefix1 = WritableUtils.decodeVIntSize(b1[s1]);
+				int prefix2 = WritableUtils.decodeVIntSize(b2[s2]);
+				int length1 = readVInt(b1, s1);
+				int length2 = readVInt(b2, s2);
+
+				return compareBytes(b1, s1 + prefix1, length1, b2, s2 + prefix2, length2);
+			} catch(IOException e) {
+				throw new IllegalArgumentException(e);
+			}
+		}
+	}
+
+	static {
+		WritableComparator.define(FrameKey.class, new Comparator());
+	}
+}
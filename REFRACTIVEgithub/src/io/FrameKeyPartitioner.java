@@ -0,0 +1,45 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io;
+
+import org.apache.hadoop.mapreduce.Partitioner;
+
+/**
+ * Partitions frame keys by a hash of their bytes. The hash does not depend
+ * on the JVM or on object identity, so a key goes to the same partition in
+ * every task and every run. The bits of the hash are mixed before taking the
+ * remainder, since keys of one projection share long prefixes.
+ */
+public class FrameKeyPartitioner<V> extends Partitioner<FrameKey, V> {
+	@Override
+	public int getPartition(FrameKey key, V value, int numPartitions) {
+		int hash = key.hashCode();
+
+		// Finalization step of MurmurHash3
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		hash ^= hash >>> 16;
+
+		return (hash & Integer.MAX_VALUE) % numPartitions;
+	}
+}
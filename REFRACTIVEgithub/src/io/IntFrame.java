@@ -0,0 +1,147 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * A frame whose slot relations, and only those, are given as ids of a
+ * {@link FrameDictionary}: for every slot a relation id, a value and a
+ * proper noun flag. Values are kept as UTF-8 bytes and are not decoded.
+ * <p>
+ * A frame is written as its frame id, its slot count, a bitmask of the
+ * proper noun flags and, for every slot, its relation id followed by its
+ * value in the format of <code>Text.writeString</code>.
+ */
+public class IntFrame implements Writable {
+	private long frameId;
+	private int slotCount;
+	private int[] relations = new int[8];
+	private Text[] values = newValues(8, 0);
+	private byte[] properNouns = new byte[1];
+
+	public long getFrameId() {
+		return frameId;
+	}
+
+	public void setFrameId(long frameId) {
+		this.frameId = frameId;
+	}
+
+	public int getSlotCount() {
+		return slotCount;
+	}
+
+	public int getRelation(int slot) {
+		return relations[slot];
+	}
+
+	/**
+	 * Returns the value of a slot. The returned text is owned by the frame
+	 * and is overwritten when the frame is read or cleared.
+	 */
+	public Text getValue(int slot) {
+		return values[slot];
+	}
+
+	public boolean isProperNoun(int slot) {
+		return (properNouns[slot >> 3] & (1 << (slot & 7))) != 0;
+	}
+
+	public void clear() {
+		Arrays.fill(properNouns, (byte)0);
+		slotCount = 0;
+	}
+
+	public void addSlot(int relation, Text value, boolean isProperNoun) {
+		ensureCapacity(slotCount + 1);
+
+		relations[slotCount] = relation;
+		values[slotCount].set(value);
+		if(isProperNoun) {
+			properNouns[slotCount >> 3] |= 1 << (slotCount & 7);
+		}
+		slotCount++;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if(capacity > relations.length) {
+			int length = Math.max(capacity, relations.length * 2);
+			relations = Arrays.copyOf(relations, length);
+			values = newValues(length, values.length);
+		}
+
+		if((capacity + 7) / 8 > properNouns.length) {
+			properNouns = Arrays.copyOf(properNouns, (relations.length + 7) / 8);
+		}
+	}
+
+	/**
+	 * Returns the values grown to the given length, keeping the texts of the
+	 * first slots.
+	 */
+	private Text[] newValues(int length, int kept) {
+		Text[] texts = (kept == 0) ? new Text[length] : Arrays.copyOf(values, length);
+
+		for(int i=kept; i<length; i++) {
+			texts[i] = new Text();
+		}
+
+		return texts;
+	}
+
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		clear();
+
+		frameId = WritableUtils.readVLong(in);
+
+		int numberOfSlots = WritableUtils.readVInt(in);
+		ensureCapacity(numberOfSlots);
+		in.readFully(properNouns, 0, (numberOfSlots + 7) / 8);
+
+		for(int i=0; i<numberOfSlots; i++) {
+			relations[i] = WritableUtils.readVInt(in);
+			values[i].readFields(in);
+		}
+
+		slotCount = numberOfSlots;
+	}
+
+	@Override
+	public void write(DataOutput out) throws IOException {
+		WritableUtils.writeVLong(out, frameId);
+		WritableUtils.writeVInt(out, slotCount);
+		out.write(properNouns, 0, (slotCount + 7) / 8);
+
+		for(int i=0; i<slotCount; i++) {
+			WritableUtils.writeVInt(out, relations[i]);
+			values[i].write(out);
+		}
+	}
+}
@@ -0,0 +1,87 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileRecordReader;
+
+/**
+ * Reads frames from sequence files of {@link IntFrame}s, using the
+ * dictionary given by the {@link FrameDictionary#DICTIONARY} setting of the
+ * job, so that jobs can read encoded frames without decoding them first.
+ * <p>
+ * The slots of a frame are reused for the next frame.
+ */
+public class IntFrameInputFormat extends SequenceFileInputFormat<LongWritable, Frame> {
+	@Override
+	public RecordReader<LongWritable, Frame> createRecordReader(InputSplit split, TaskAttemptContext context) {
+		return new IntFrameRecordReader();
+	}
+
+	private static class IntFrameRecordReader extends RecordReader<LongWritable, Frame> {
+		private final SequenceFileRecordReader<LongWritable, IntFrame> reader = new SequenceFileRecordReader<LongWritable, IntFrame>();
+		private FrameDictionary frameDictionary;
+		private final Frame frame = new Frame();
+
+		@Override
+		public void initialize(InputSplit inputSplit, TaskAttemptContext context) throws IOException, InterruptedException {
+			frameDictionary = FrameDictionary.read(context.getConfiguration());
+			frame.setReuseSlots(true);
+			reader.initialize(inputSplit, context);
+		}
+
+		@Override
+		public boolean nextKeyValue() throws IOException, InterruptedException {
+			if(!reader.nextKeyValue()) {
+				return false;
+			}
+
+			frameDictionary.decode(reader.getCurrentValue(), frame);
+			return true;
+		}
+
+		@Override
+		public LongWritable getCurrentKey() {
+			return reader.getCurrentKey();
+		}
+
+		@Override
+		public Frame getCurrentValue() {
+			return frame;
+		}
+
+		@Override
+		public float getProgress() throws IOException {
+			return reader.getProgress();
+		}
+
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A fixed dictionary of the relation parts that occur in most slots, used by
+ * the compact {@link Frame} format to write them as small integers. The
+ * dictionary holds the frame root relations and the dependency labels of
+ * the CoNLL 2008 and 2009 English data, followed by the common semantic
+ * role labels. Parts outside the dictionary, such as predicate senses, are
+ * written in full.
+ * <p>
+ * Ids are part of the stored format: entries may only be appended, never
+ * reordered or removed.
+ */
+public final class RelationDictionary {
+	/**
+	 * The id written for a relation part that is not in the dictionary.
+	 */
+	public static final int NONE = 0;
+
+	private static final String[] BASE_RELATIONS = {
+		"NOUN", "VERB",
+		"ADV", "AMOD", "APPO", "BNF", "CONJ", "COORD", "DEP", "DIR", "DTV",
+		"EXT", "EXTR", "HMOD", "HYPH", "IM", "LGS", "LOC", "LOC-OPRD", "MNR",
+		"NAME", "NMOD", "OBJ", "OPRD", "P", "PMOD", "POSTHON", "PRD", "PRN",
+		"PRP", "PRT", "PUT", "ROOT", "SBJ", "SUB", "SUFFIX", "TITLE", "TMP",
+		"VC", "VOC", "DIR-PRD", "LOC-PRD", "MNR-PRD", "PRD-PRP", "PRD-TMP",
+		"ADV-GAP", "AMOD-GAP", "DIR-GAP", "DTV-GAP", "LGS-GAP", "LOC-GAP",
+		"NMOD-GAP", "OBJ-GAP", "OPRD-GAP", "PMOD-GAP", "PRD-GAP", "SBJ-GAP",
+		"TMP-GAP", "VC-GAP"
+	};
+
+	private static final String[] SEMANTIC_LABELS = {
+		"A0", "A1", "A2", "A3", "A4", "A5", "AA",
+		"AM-ADV", "AM-CAU", "AM-DIR", "AM-DIS", "AM-EXT", "AM-LOC", "AM-MNR",
+		"AM-MOD", "AM-NEG", "AM-PNC", "AM-PRD", "AM-PRT", "AM-REC", "AM-TMP",
+		"C-A0", "C-A1", "C-A2", "C-A3", "C-A4", "C-AM-MNR",
+		"R-A0", "R-A1", "R-A2", "R-A3", "R-A4", "R-AM-CAU", "R-AM-LOC",
+		"R-AM-MNR", "R-AM-TMP"
+	};
+
+	private static final int[] RELATIONS;
+	private static final Map<String, Integer> IDS;
+
+	static {
+		RELATIONS = new int[BASE_RELATIONS.length + SEMANTIC_LABELS.length + 1];
+		IDS = new HashMap<String, Integer>();
+
+		int id = 1;
+		for(String relation:BASE_RELATIONS) {
+			RELATIONS[id] = RelationPool.intern(relation);
+			IDS.put(relation, id++);
+		}
+		for(String relation:SEMANTIC_LABELS) {
+			RELATIONS[id] = RelationPool.intern(relation);
+			IDS.put(relation, id++);
+		}
+	}
+
+	private RelationDictionary() {
+	}
+
+	/**
+	 * Returns the id of a relation part, given as an id of the
+	 * {@link RelationPool}, or {@link #NONE} if it is not in the dictionary.
+	 */
+	public static int getId(int relation) {
+		Integer id = IDS.get(RelationPool.get(relation));
+
+		return (id == null) ? NONE : id;
+	}
+
+	/**
+	 * Returns the {@link RelationPool} id of the relation part with the
+	 * given dictionary id.
+	 */
+	public static int getRelation(int id) {
+		return RELATIONS[id];
+	}
+
+	/**
+	 * Returns true if the id denotes a relation part of the dictionary.
+	 */
+	public static boolean contains(int id) {
+		return id > NONE && id < RELATIONS.length;
+	}
+}
@@ -0,0 +1,337 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * An inverted index from the relations of the frames in a sequence file to
+ * the positions of the records holding them, so that a query needing a few
+ * rare relations can seek to the frames that may match instead of reading
+ * the whole file.
+ * <p>
+ * The index of a file is kept next to it, in a directory named
+ * <code>_relations</code> that input formats skip. It starts with the length
+ * of the frame file it was built from, so that an index left behind by an
+ * earlier file is not used, followed by a table of the relations, in upper
+ * case as relations match ignoring case, with the count, offset and length
+ * of their posting lists. A posting list holds the record positions as
+ * variable-length deltas.
+ */
+public class RelationIndex implements Closeable {
+	private static final int MAGIC = 0x52464958;
+	private static final int VERSION = 1;
+	private static final String INDEX_DIRECTORY = "_relations";
+
+	/**
+	 * The postings of a relation while an index is built.
+	 */
+	private static class Postings {
+		final String relation;
+		final DataOutputBuffer positions = new DataOutputBuffer();
+		long lastPosition = -1;
+		int count;
+
+		Postings(String relation) {
+			this.relation = relation;
+		}
+	}
+
+	/**
+	 * The table entry of a relation in an index.
+	 */
+	private static class Entry {
+		final int count;
+		final long offset;
+		final int length;
+
+		Entry(int count, long offset, int length) {
+			this.count = count;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+	private final FSDataInputStream in;
+	private final Map<String, Entry> entries;
+	private final long postingsOffset;
+	private byte[] buffer = new byte[0];
+	private final DataInputBuffer input = new DataInputBuffer();
+
+	private RelationIndex(FSDataInputStream in, Map<String, Entry> entries, long postingsOffset) {
+		this.in = in;
+		this.entries = entries;
+		this.postingsOffset = postingsOffset;
+	}
+
+	/**
+	 * Returns the path of the index of a frame file.
+	 */
+	public static Path getIndexPath(Path frameFile) {
+		return new Path(new Path(frameFile.getParent(), INDEX_DIRECTORY), frameFile.getName());
+	}
+
+	/**
+	 * Builds the index of a sequence file of frames, replacing any index it
+	 * had. Returns the number of frames indexed.
+	 */
+	public static long build(FileSystem fs, Path frameFile, Configuration conf) throws IOException {
+		SequenceFile.Reader reader = new SequenceFile.Reader(fs, frameFile, conf);
+		Map<Long, Postings> postingsByRelation = new HashMap<Long, Postings>();
+		long frameCount = 0;
+
+		try {
+			if(reader.isBlockCompressed()) {
+				throw new IOException("Cannot index the block-compressed file " + frameFile);
+			}
+
+			LongWritable key = new LongWritable();
+			Frame frame = new Frame();
+			frame.setReuseSlots(true);
+
+			long position = reader.getPosition();
+			while(reader.next(key, frame)) {
+				for(int i=0; i<frame.getSlotCount(); i++) {
+					Slot slot = frame.getSlot(i);
+					long relationKey = ((long)RelationPool.getFoldedId(slot.getBaseRelation()) << 32)
+							| ((long)RelationPool.getFoldedId(slot.getSemanticLabel()) << 2)
+							| slot.getKind().ordinal();
+					// Relations differing only in case have the same folded
+					// ids and so share their postings
+					Postings postings = postingsByRelation.get(relationKey);
+
+					if(postings == null) {
+						postings = new Postings(slot.getRelation().toUpperCase());
+						postingsByRelation.put(relationKey, postings);
+					}
+
+					if(postings.lastPosition != position) {
+						WritableUtils.writeVLong(postings.positions, position - Math.max(postings.lastPosition, 0));
+						postings.lastPosition = position;
+						postings.count++;
+					}
+				}
+
+				frameCount++;
+				position = reader.getPosition();
+			}
+		} finally {
+			reader.close();
+		}
+
+		Map<String, Postings> postingsByName = new TreeMap<String, Postings>();
+		for(Postings postings:postingsByRelation.values()) {
+			postingsByName.put(postings.relation, postings);
+		}
+
+		write(fs, frameFile, fs.getFileStatus(frameFile).getLen(), postingsByName);
+
+		return frameCount;
+	}
+
+	private static void write(FileSystem fs, Path frameFile, long frameFileLength, Map<String, Postings> postingsByName) throws IOException {
+		Path indexPath = getIndexPath(frameFile);
+		Path temporaryPath = new Path(indexPath.getParent(), "." + indexPath.getName() + ".tmp");
+		FSDataOutputStream out = fs.create(temporaryPath, true);
+
+		try {
+			out.writeInt(MAGIC);
+			out.writeByte(VERSION);
+			out.writeLong(frameFileLength);
+			WritableUtils.writeVInt(out, postingsByName.size());
+
+			for(Postings postings:postingsByName.values()) {
+				Text.writeString(out, postings.relation);
+				WritableUtils.writeVInt(out, postings.count);
+				WritableUtils.writeVInt(out, postings.positions.getLength());
+			}
+
+			for(Postings postings:postingsByName.values()) {
+				out.write(postings.positions.getData(), 0, postings.positions.getLength());
+			}
+		} finally {
+			out.close();
+		}
+
+		fs.delete(indexPath, false);
+		if(!fs.rename(temporaryPath, indexPath)) {
+			throw new IOException("Could not move the index of " + frameFile + " to " + indexPath);
+		}
+	}
+
+	/**
+	 * Opens the index of a frame file, or returns <code>null</code> if the
+	 * file has no index or its index was built from another version of it.
+	 */
+	public static RelationIndex open(FileSystem fs, Path frameFile) throws IOException {
+		Path indexPath = getIndexPath(frameFile);
+
+		if(!fs.exists(indexPath)) {
+			return null;
+		}
+
+		FSDataInputStream in = fs.open(indexPath);
+
+		try {
+			if(in.readInt() != MAGIC) {
+				throw new IOException("Not a relation index: " + indexPath);
+			}
+			int version = in.readUnsignedByte();
+			if(version != VERSION) {
+				throw new IOException("Unknown relation index version: " + version);
+			}
+			if(in.readLong() != fs.getFileStatus(frameFile).getLen()) {
+				in.close();
+				return null;
+			}
+
+			int relationCount = WritableUtils.readVInt(in);
+			Map<String, Entry> entries = new HashMap<String, Entry>();
+			long offset = 0;
+
+			for(int i=0; i<relationCount; i++) {
+				String relation = Text.readString(in);
+				int count = WritableUtils.readVInt(in);
+				int length = WritableUtils.readVInt(in);
+
+				entries.put(relation, new Entry(count, offset, length));
+				offset += length;
+			}
+
+			return new RelationIndex(in, entries, in.getPos());
+		} catch(IOException e) {
+			IOUtils.closeStream(in);
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the number of frames holding a relation.
+	 */
+	public int getCount(String relation) {
+		Entry entry = entries.get(relation.toUpperCase());
+
+		return (entry == null) ? 0 : entry.count;
+	}
+
+	/**
+	 * Returns the sorted positions of the records holding a relation.
+	 */
+	public long[] getPositions(String relation) throws IOException {
+		Entry entry = entries.get(relation.toUpperCase());
+
+		if(entry == null) {
+			return new long[0];
+		}
+
+		if(buffer.length < entry.length) {
+			buffer = new byte[entry.length];
+		}
+		in.readFully(postingsOffset + entry.offset, buffer, 0, entry.length);
+		input.reset(buffer, entry.length);
+
+		long[] positions = new long[entry.count];
+		long position = 0;
+		for(int i=0; i<entry.count; i++) {
+			position += WritableUtils.readVLong(input);
+			positions[i] = position;
+		}
+
+		return positions;
+	}
+
+	/**
+	 * Returns the sorted positions of the records holding all of the given
+	 * relations. The posting lists are intersected starting with the
+	 * shortest one.
+	 */
+	public long[] getPositions(Collection<String> relations) throws IOException {
+		List<String> sortedRelations = new ArrayList<String>(relations);
+		Collections.sort(sortedRelations, new Comparator<String>() {
+			@Override
+			public int compare(String relation1, String relation2) {
+				return getCount(relation1) - getCount(relation2);
+			}
+		});
+
+		long[] positions = null;
+		for(String relation:sortedRelations) {
+			if(positions == null) {
+				positions = getPositions(relation);
+			} else {
+				positions = intersect(positions, getPositions(relation));
+			}
+
+			if(positions.length == 0) {
+				break;
+			}
+		}
+
+		return (positions == null) ? new long[0] : positions;
+	}
+
+	private static long[] intersect(long[] positions1, long[] positions2) {
+		long[] positions = new long[Math.min(positions1.length, positions2.length)];
+		int count = 0;
+
+		for(int i=0, j=0; i<positions1.length && j<positions2.length;) {
+			if(positions1[i] < positions2[j]) {
+				i++;
+			} else if(positions1[i] > positions2[j]) {
+				j++;
+			} else {
+				positions[count++] = positions1[i];
+				i++;
+				j++;
+			}
+		}
+
+		return Arrays.copyOf(positions, count);
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
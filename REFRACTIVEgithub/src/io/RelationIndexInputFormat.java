@@ -0,0 +1,214 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileRecordReader;
+
+/**
+ * Reads only the frames of sequence files that may match the queries of a
+ * job, as given by the {@link RelationIndex} of each file. A query is given
+ * by the relations it needs, and a frame is read if it holds all relations
+ * of at least one query. Files without an up-to-date index, and all files
+ * if no query is given, are read in full.
+ * <p>
+ * A split reads the candidate frames whose records start within it.
+ */
+public class RelationIndexInputFormat extends SequenceFileInputFormat<LongWritable, Frame> {
+	/**
+	 * The setting holding the relations of the queries, the relations of a
+	 * query separated by commas and the queries by semicolons.
+	 */
+	public static final String RELATIONS = "relationindex.relations";
+
+	/**
+	 * Adds a query to the queries of a job, given by the relations it needs.
+	 */
+	public static void addRelations(Configuration conf, Collection<String> relations) {
+		StringBuilder sb = new StringBuilder();
+		String separator = "";
+
+		for(String relation:relations) {
+			sb.append(separator);
+			sb.append(relation.toUpperCase());
+			separator = ",";
+		}
+
+		String queries = conf.get(RELATIONS);
+		conf.set(RELATIONS, (queries == null) ? sb.toString() : queries + ";" + sb.toString());
+	}
+
+	/**
+	 * Returns the relations of the queries of a job.
+	 */
+	public static List<List<String>> getRelations(Configuration conf) {
+		List<List<String>> queries = new ArrayList<List<String>>();
+		String relations = conf.get(RELATIONS);
+
+		if(relations != null) {
+			for(String query:relations.split(";")) {
+				queries.add(Arrays.asList(query.split(",")));
+			}
+		}
+
+		return queries;
+	}
+
+	@Override
+	public RecordReader<LongWritable, Frame> createRecordReader(InputSplit split, TaskAttemptContext context) {
+		return new RelationIndexRecordReader();
+	}
+
+	private static class RelationIndexRecordReader extends RecordReader<LongWritable, Frame> {
+		private SequenceFileRecordReader<LongWritable, Frame> scanReader;
+		private SequenceFile.Reader reader;
+		private long[] positions;
+		private int index;
+		private final LongWritable key = new LongWritable();
+		private final Frame frame = new Frame();
+
+		@Override
+		public void initialize(InputSplit inputSplit, TaskAttemptContext context) throws IOException, InterruptedException {
+			FileSplit split = (FileSplit)inputSplit;
+			Configuration conf = context.getConfiguration();
+			Path path = split.getPath();
+			FileSystem fs = path.getFileSystem(conf);
+			List<List<String>> queries = getRelations(conf);
+			RelationIndex relationIndex = queries.isEmpty() ? null : RelationIndex.open(fs, path);
+
+			if(relationIndex == null) {
+				scanReader = new SequenceFileRecordReader<LongWritable, Frame>();
+				scanReader.initialize(inputSplit, context);
+				return;
+			}
+
+			try {
+				positions = getCandidates(relationIndex, queries, split.getStart(), split.getStart() + split.getLength());
+			} finally {
+				relationIndex.close();
+			}
+
+			reader = new SequenceFile.Reader(fs, path, conf);
+		}
+
+		/**
+		 * Returns the sorted positions within a split of the records holding
+		 * all relations of at least one query.
+		 */
+		private static long[] getCandidates(RelationIndex relationIndex, List<List<String>> queries, long start, long end) throws IOException {
+			long[] candidates = new long[0];
+
+			for(List<String> relations:queries) {
+				candidates = union(candidates, relationIndex.getPositions(relations));
+			}
+
+			int from = 0;
+			while(from < candidates.length && candidates[from] < start) {
+				from++;
+			}
+
+			int to = from;
+			while(to < candidates.length && candidates[to] < end) {
+				to++;
+			}
+
+			return Arrays.copyOfRange(candidates, from, to);
+		}
+
+		private static long[] union(long[] positions1, long[] positions2) {
+			long[] positions = new long[positions1.length + positions2.length];
+			int count = 0;
+			int i = 0;
+			int j = 0;
+
+			while(i < positions1.length || j < positions2.length) {
+				if(j == positions2.length || (i < positions1.length && positions1[i] < positions2[j])) {
+					positions[count++] = positions1[i++];
+				} else if(i == positions1.length || positions2[j] < positions1[i]) {
+					positions[count++] = positions2[j++];
+				} else {
+					positions[count++] = positions1[i++];
+					j++;
+				}
+			}
+
+			return Arrays.copyOf(positions, count);
+		}
+
+		@Override
+		public boolean nextKeyValue() throws IOException, InterruptedException {
+			if(scanReader != null) {
+				return scanReader.nextKeyValue();
+			}
+
+			if(index == positions.length) {
+				return false;
+			}
+
+			reader.seek(positions[index++]);
+			return reader.next(key, frame);
+		}
+
+		@Override
+		public LongWritable getCurrentKey() {
+			return (scanReader != null) ? scanReader.getCurrentKey() : key;
+		}
+
+		@Override
+		public Frame getCurrentValue() {
+			return (scanReader != null) ? scanReader.getCurrentValue() : frame;
+		}
+
+		@Override
+		public float getProgress() throws IOException, InterruptedException {
+			if(scanReader != null) {
+				return scanReader.getProgress();
+			}
+
+			return (positions.length == 0) ? 1.0f : (float)index / positions.length;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if(scanReader != null) {
+				scanReader.close();
+			}
+			if(reader != null) {
+				reader.close();
+			}
+		}
+	}
+}
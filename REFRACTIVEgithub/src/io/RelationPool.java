@@ -0,0 +1,101 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns the parts of slot relations, i.e. base relations and semantic
+ * labels, as integer ids that are shared by all slots of the process. Every
+ * id also has a folded id, the id of its upper case form, so that relations
+ * can be compared ignoring case with a single integer compare. Ids are only
+ * valid within the running process and are never stored; the stored form of
+ * a relation is given by the {@link RelationDictionary}.
+ * <p>
+ * The pool is thread-safe. Looking up a known value does not lock.
+ */
+public final class RelationPool {
+	/**
+	 * The id of a missing value, e.g. the semantic label of a slot that has
+	 * none.
+	 */
+	public static final int NONE = 0;
+
+	private static final ConcurrentHashMap<String, Integer> IDS = new ConcurrentHashMap<String, Integer>();
+	private static volatile String[] values = new String[1024];
+	private static volatile int[] foldedIds = new int[1024];
+	private static int size = 1;
+
+	private RelationPool() {
+	}
+
+	public static int intern(String value) {
+		Integer id = IDS.get(value);
+
+		if(id != null) {
+			return id;
+		}
+
+		return add(value);
+	}
+
+	public static String get(int id) {
+		return values[id];
+	}
+
+	/**
+	 * Returns the id of the upper case form of the value with the given id.
+	 */
+	public static int getFoldedId(int id) {
+		return foldedIds[id];
+	}
+
+	private static synchronized int add(String value) {
+		Integer id = IDS.get(value);
+
+		if(id != null) {
+			return id;
+		}
+
+		String foldedValue = value.toUpperCase();
+		int foldedId;
+
+		if(foldedValue.equals(value)) {
+			foldedId = size;
+		} else {
+			foldedId = add(foldedValue);
+		}
+
+		if(size == values.length) {
+			values = Arrays.copyOf(values, size * 2);
+			foldedIds = Arrays.copyOf(foldedIds, size * 2);
+		}
+
+		int newId = size++;
+		values[newId] = value;
+		foldedIds[newId] = foldedId;
+		// Publishing the id last makes the arrays visible to lock-free readers
+		IDS.put(value, newId);
+
+		return newId;
+	}
+}
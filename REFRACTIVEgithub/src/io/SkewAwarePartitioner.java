@@ -0,0 +1,133 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.util.StringUtils;
+
+/**
+ * Partitions frame keys like {@link FrameKeyPartitioner}, except for a few
+ * heavy keys given in the job configuration, each of which is spread over a
+ * number of consecutive partitions in turn. A reducer thus only sees part of
+ * the records of a heavy key, and the partial results of the reducers have
+ * to be merged.
+ * <p>
+ * Every task starts spreading at its own partition number, so that mappers
+ * writing a heavy key only a few times do not all pick the same partition.
+ */
+public class SkewAwarePartitioner<V> extends FrameKeyPartitioner<V> implements Configurable {
+	/**
+	 * The setting holding the heavy keys and the number of partitions each
+	 * is spread over.
+	 */
+	public static final String HEAVY_KEYS = "skew.heavy.keys";
+
+	private Configuration conf;
+	private Map<FrameKey, Integer> heavyKeys;
+	private int next;
+
+	/**
+	 * Stores the heavy keys of a job, given with the number of partitions
+	 * each is spread over.
+	 */
+	public static void setHeavyKeys(Configuration conf, Map<FrameKey, Integer> heavyKeys) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		DataOutputBuffer buffer = new DataOutputBuffer();
+		String separator = "";
+
+		for(Map.Entry<FrameKey, Integer> entry:heavyKeys.entrySet()) {
+			buffer.reset();
+			entry.getKey().write(buffer);
+
+			sb.append(separator);
+			sb.append(StringUtils.byteToHexString(buffer.getData(), 0, buffer.getLength()));
+			sb.append(":");
+			sb.append(entry.getValue());
+			separator = ",";
+		}
+
+		conf.set(HEAVY_KEYS, sb.toString());
+	}
+
+	/**
+	 * Returns the heavy keys of a job with the number of partitions each is
+	 * spread over.
+	 */
+	public static Map<FrameKey, Integer> getHeavyKeys(Configuration conf) throws IOException {
+		Map<FrameKey, Integer> heavyKeys = new HashMap<FrameKey, Integer>();
+		String keys = conf.get(HEAVY_KEYS, "");
+		DataInputBuffer buffer = new DataInputBuffer();
+
+		for(String entry:keys.split(",")) {
+			if(entry.length() == 0) {
+				continue;
+			}
+
+			int separator = entry.indexOf(':');
+			byte[] bytes = StringUtils.hexStringToByte(entry.substring(0, separator));
+			buffer.reset(bytes, bytes.length);
+
+			FrameKey key = new FrameKey();
+			key.readFields(buffer);
+			heavyKeys.put(key, Integer.parseInt(entry.substring(separator + 1)));
+		}
+
+		return heavyKeys;
+	}
+
+	@Override
+	public void setConf(Configuration conf) {
+		this.conf = conf;
+
+		try {
+			heavyKeys = getHeavyKeys(conf);
+		} catch(IOException e) {
+			throw new IllegalArgumentException("Invalid " + HEAVY_KEYS + " setting", e);
+		}
+
+		next = conf.getInt("mapred.task.partition", 0);
+	}
+
+	@Override
+	public Configuration getConf() {
+		return conf;
+	}
+
+	@Override
+	public int getPartition(FrameKey key, V value, int numPartitions) {
+		int partition = super.getPartition(key, value, numPartitions);
+		Integer spread = heavyKeys.get(key);
+
+		if(spread == null) {
+			return partition;
+		}
+
+		next = (next + 1) & Integer.MAX_VALUE;
+		return (partition + next % Math.min(spread, numPartitions)) % numPartitions;
+	}
+}
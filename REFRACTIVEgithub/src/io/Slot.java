@@ -1,90 +1,276 @@
-/**
- * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
- * Copyright © 2013 Peter Exner
- * 
- * This file is part of Refractive.
- *
- * Refractive is free software: you can redistribute it and/or modify
- * it under the terms of the GNU General Public License as published by
- * the Free Software Foundation, either version 3 of the License, or
- * (at your option) any later version.
- *
- * Refractive is distributed in the hope that it will be useful,
- * but WITHOUT ANY WARRANTY; without even the implied warranty of
- * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
- * GNU General Public License for more details.
- *
- * You should have received a copy of the GNU General Public License
- * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
- */
-
-package io;
-
-import java.io.DataInput;
-import java.io.DataOutput;
-import java.io.IOException;
-
-import org.apache.hadoop.io.Writable;
-
-public class Slot implements Writable {
-	private String relation;
-	private String value;
-	private Boolean isProperNoun;
-	
-	@Override
-	public String toString() {
-		StringBuilder sb = new StringBuilder();
-		sb.append("<");
-		sb.append(this.relation);
-		sb.append(",");
-		sb.append("\"");
-		sb.append(this.value);
-		sb.append("\"");
-		if(this.isProperNoun) {
-			sb.append(",Y");
-		} else {
-			sb.append(",N");
-		}
-		sb.append(">");
-
-		return sb.toString();
-	}
-
-	@Override
-	public void readFields(DataInput in) throws IOException {
-		this.relation = in.readUTF();
-		this.value = in.readUTF();
-		this.isProperNoun = in.readBoolean();
-	}
-
-	@Override
-	public void write(DataOutput out) throws IOException {
-		out.writeUTF(this.relation);
-		out.writeUTF(this.value);
-		out.writeBoolean(this.isProperNoun);
-	}
-
-	public String getRelation() {
-		return relation;
-	}
-
-	public void setRelation(String relation) {
-		this.relation = relation;
-	}
-	
-	public String getValue() {
-		return value;
-	}
-
-	public void setValue(String value) {
-		this.value = value;
-	}
-
-	public Boolean getIsProperNoun() {
-		return isProperNoun;
-	}
-
-	public void setIsProperNoun(Boolean isProperNoun) {
-		this.isProperNoun = isProperNoun;
-	}
-}
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * A slot of a frame. The relation of a slot is kept in parts: a base
+ * relation, such as a dependency label or a predicate sense, an optional
+ * semantic role label and the kind of value the slot holds. The parts are
+ * ids of the {@link RelationPool}, and the relation string, e.g.
+ * <code>SBJ-Y</code> or <code>BUY.01_A0</code>, is only built when asked
+ * for. In the same way, a value read by a {@link Frame} is kept as UTF-8
+ * bytes and only decoded to a <code>String</code> when asked for.
+ */
+public class Slot implements Writable {
+	/**
+	 * The kind of value of a slot, written as a suffix of the relation.
+	 */
+	public enum Kind {
+		LEMMA(""),
+		COREFERENCE("-C"),
+		YIELD("-Y"),
+		NAMED_ENTITY_TYPE("-T");
+
+		private static final Kind[] KINDS = values();
+
+		private final String suffix;
+
+		private Kind(String suffix) {
+			this.suffix = suffix;
+		}
+
+		public String getSuffix() {
+			return suffix;
+		}
+
+		public static Kind fromOrdinal(int ordinal) {
+			return KINDS[ordinal];
+		}
+	}
+
+	private static final String SEMANTIC_LABEL_SEPARATOR = "_";
+
+	private int baseRelation;
+	private Kind kind = Kind.LEMMA;
+	private int semanticLabel = RelationPool.NONE;
+	private String relation;
+	private String value;
+	private final Text valueBytes = new Text();
+	private boolean hasValueBytes;
+	private Boolean isProperNoun;
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<");
+		sb.append(getRelation());
+		sb.append(",");
+		sb.append("\"");
+		sb.append(getValue());
+		sb.append("\"");
+		if(this.isProperNoun) {
+			sb.append(",Y");
+		} else {
+			sb.append(",N");
+		}
+		sb.append(">");
+
+		return sb.toString();
+	}
+
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		setRelation(in.readUTF());
+		setValue(in.readUTF());
+		this.isProperNoun = in.readBoolean();
+	}
+
+	@Override
+	public void write(DataOutput out) throws IOException {
+		out.writeUTF(getRelation());
+		out.writeUTF(getValue());
+		out.writeBoolean(this.isProperNoun);
+	}
+
+	/**
+	 * Returns the relation as a string: the base relation, an underscore and
+	 * the semantic label if there is one, and the suffix of the kind.
+	 */
+	public String getRelation() {
+		if(relation == null) {
+			if(semanticLabel == RelationPool.NONE && kind == Kind.LEMMA) {
+				relation = RelationPool.get(baseRelation);
+			} else {
+				StringBuilder sb = new StringBuilder();
+				sb.append(RelationPool.get(baseRelation));
+				if(semanticLabel != RelationPool.NONE) {
+					sb.append(SEMANTIC_LABEL_SEPARATOR);
+					sb.append(RelationPool.get(semanticLabel));
+				}
+				sb.append(kind.getSuffix());
+				relation = sb.toString();
+			}
+		}
+
+		return relation;
+	}
+
+	/**
+	 * Sets the relation from its string form. A trailing -C, -Y or -T gives
+	 * the kind of the slot, and the part after the last underscore, if any,
+	 * the semantic label.
+	 */
+	public void setRelation(String relation) {
+		Kind kind = Kind.LEMMA;
+		int end = relation.length();
+
+		for(int i=1; i<Kind.KINDS.length; i++) {
+			String suffix = Kind.KINDS[i].getSuffix();
+
+			if(relation.regionMatches(true, relation.length() - suffix.length(), suffix, 0, suffix.length())) {
+				kind = Kind.KINDS[i];
+				end = relation.length() - suffix.length();
+				break;
+			}
+		}
+
+		int separator = relation.lastIndexOf(SEMANTIC_LABEL_SEPARATOR, end - 1);
+
+		if(separator > 0) {
+			setRelation(RelationPool.intern(relation.substring(0, separator)), kind, RelationPool.intern(relation.substring(separator + 1, end)));
+		} else {
+			setRelation(RelationPool.intern(relation.substring(0, end)), kind, RelationPool.NONE);
+		}
+
+		this.relation = relation;
+	}
+
+	/**
+	 * Sets the relation from its parts, given as ids of the
+	 * {@link RelationPool}.
+	 */
+	public void setRelation(int baseRelation, Kind kind, int semanticLabel) {
+		this.baseRelation = baseRelation;
+		this.kind = kind;
+		this.semanticLabel = semanticLabel;
+		this.relation = null;
+	}
+
+	public int getBaseRelation() {
+		return baseRelation;
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * Returns the semantic role label of the slot, or
+	 * {@link RelationPool#NONE} if the slot is not a semantic role slot.
+	 */
+	public int getSemanticLabel() {
+		return semanticLabel;
+	}
+	
+	/**
+	 * Returns the bit of the relation of the slot in a
+	 * {@link Frame#getRelationMask() relation mask}.
+	 */
+	public long getRelationBit() {
+		return getRelationBit(RelationPool.getFoldedId(baseRelation), kind, RelationPool.getFoldedId(semanticLabel));
+	}
+
+	/**
+	 * Returns the bit of a relation, given by the folded ids of its parts,
+	 * in a relation mask. Relations that differ only in case have the same
+	 * bit, and so may unrelated relations.
+	 */
+	public static long getRelationBit(int foldedBaseRelation, Kind kind, int foldedSemanticLabel) {
+		int hash = (foldedBaseRelation * 31 + foldedSemanticLabel) * 4 + kind.ordinal();
+		hash *= 0x9E3779B9;
+
+		return 1L << (hash >>> 26);
+	}
+
+	public String getValue() {
+		if(value == null && hasValueBytes) {
+			value = valueBytes.toString();
+		}
+
+		return value;
+	}
+
+	public void setValue(String value) {
+		this.value = value;
+		this.hasValueBytes = false;
+	}
+
+	/**
+	 * Returns the value as UTF-8 bytes. The returned text is a view owned by
+	 * the slot and must not be changed.
+	 */
+	public Text getValueBytes() {
+		if(!hasValueBytes) {
+			valueBytes.set(value);
+			hasValueBytes = true;
+		}
+
+		return valueBytes;
+	}
+
+	/**
+	 * Reads a value written by {@link #writeValue} without decoding it.
+	 */
+	void readValue(DataInput in) throws IOException {
+		valueBytes.readFields(in);
+		hasValueBytes = true;
+		value = null;
+	}
+
+	/**
+	 * Sets the value to a copy of the given UTF-8 bytes without decoding
+	 * them.
+	 */
+	void setValueBytes(Text text) {
+		valueBytes.set(text);
+		hasValueBytes = true;
+		value = null;
+	}
+
+	/**
+	 * Writes the value as a variable-length integer byte count followed by
+	 * its UTF-8 bytes, the format of <code>Text.writeString</code>.
+	 */
+	void writeValue(DataOutput out) throws IOException {
+		if(hasValueBytes) {
+			WritableUtils.writeVInt(out, valueBytes.getLength());
+			out.write(valueBytes.getBytes(), 0, valueBytes.getLength());
+		} else {
+			Text.writeString(out, value);
+		}
+	}
+
+	public Boolean getIsProperNoun() {
+		return isProperNoun;
+	}
+
+	public void setIsProperNoun(Boolean isProperNoun) {
+		this.isProperNoun = isProperNoun;
+	}
+}
@@ -0,0 +1,131 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.conll;
+
+import java.util.Arrays;
+
+/**
+ * Compact form of a CoNLL document, as produced by {@link CoNLLParser}. The
+ * document and its sentences are reused by the parser, so they are only
+ * valid until the parser reads the next document.
+ */
+public class CoNLLDocument {
+	private StringPool stringPool;
+	private int sentenceCount;
+	private CoNLLSentence[] sentences = new CoNLLSentence[0];
+
+	private int representativeCount;
+	private long[] representatives = new long[8];
+	private int[] mentionSentences = new int[8];
+	private int[] mentionSpans = new int[8];
+
+	CoNLLDocument(StringPool stringPool) {
+		this.stringPool = stringPool;
+	}
+
+	public StringPool getStringPool() {
+		return stringPool;
+	}
+
+	public int getSentenceCount() {
+		return sentenceCount;
+	}
+
+	public CoNLLSentence getSentence(int index) {
+		return sentences[index];
+	}
+
+	/**
+	 * Returns the representative mention of the coreference chain with the
+	 * given label, or -1 unless the document has exactly one representative
+	 * mention for the label.
+	 */
+	public int findRepresentativeMention(int coreferenceLabel) {
+		int index = Arrays.binarySearch(representatives, 0, representativeCount, (long) coreferenceLabel << 32);
+		if(index < 0) {
+			index = -index - 1;
+		}
+
+		if(index < representativeCount && getRepresentativeLabel(index) == coreferenceLabel
+				&& (index + 1 == representativeCount || getRepresentativeLabel(index + 1) != coreferenceLabel)) {
+			return (int) representatives[index];
+		}
+
+		return -1;
+	}
+
+	public CoNLLSentence getMentionSentence(int mention) {
+		return sentences[mentionSentences[mention]];
+	}
+
+	public int getMentionSpan(int mention) {
+		return mentionSpans[mention];
+	}
+
+	void clear() {
+		sentenceCount = 0;
+		representativeCount = 0;
+	}
+
+	CoNLLSentence addSentence() {
+		if(sentenceCount == sentences.length) {
+			sentences = Arrays.copyOf(sentences, Math.max(8, sentenceCount * 2));
+		}
+
+		if(sentences[sentenceCount] == null) {
+			sentences[sentenceCount] = new CoNLLSentence();
+		}
+
+		return sentences[sentenceCount++];
+	}
+
+	/**
+	 * Indexes the representative coreference mentions of all sentences by
+	 * label.
+	 */
+	void finish() {
+		for(int i=0; i<sentenceCount; i++) {
+			CoNLLSpans spans = sentences[i].getCoreferenceSpans();
+
+			for(int span=0; span<spans.getCount(); span++) {
+				if(spans.isRepresentative(span)) {
+					if(representativeCount == representatives.length) {
+						representatives = Arrays.copyOf(representatives, representativeCount * 2);
+						mentionSentences = Arrays.copyOf(mentionSentences, representativeCount * 2);
+						mentionSpans = Arrays.copyOf(mentionSpans, representativeCount * 2);
+					}
+
+					// Sorts by label, the mention is looked up by the lower 32 bits
+					mentionSentences[representativeCount] = i;
+					mentionSpans[representativeCount] = span;
+					representatives[representativeCount] = ((long) spans.getLabel(span) << 32) | representativeCount;
+					representativeCount++;
+				}
+			}
+		}
+
+		Arrays.sort(representatives, 0, representativeCount);
+	}
+
+	private int getRepresentativeLabel(int index) {
+		return (int) (representatives[index] >>> 32);
+	}
+}
@@ -0,0 +1,498 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.conll;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.io.Text;
+
+import conll.model.Document;
+import conll.model.Edge;
+import conll.model.Edge.EdgeType;
+import conll.model.Sentence;
+import conll.model.Span;
+import conll.model.Span.SpanType;
+import conll.model.Token;
+import conll.model.TokenPropertyIdentifier;
+
+/**
+ * Reads documents in the CoNLL entity format, as read by conlltools'
+ * <code>CoNLLEntityReader</code>, straight from a UTF-8 byte buffer into a
+ * {@link CoNLLDocument}. Columns are located in place and only the values
+ * used for frame extraction are interned, so parsing a document allocates
+ * next to nothing once the parser has warmed up.
+ *
+ * A parser reuses its document between calls and is not thread-safe; use
+ * one parser per thread.
+ */
+public class CoNLLParser {
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final int ID = 0;
+	private static final int FORM = 1;
+	private static final int PLEMMA = 3;
+	private static final int PPOS = 5;
+	private static final int PHEAD = 9;
+	private static final int PDEPREL = 11;
+	private static final int FILLPRED = 12;
+	private static final int PRED = 13;
+	private static final int APRED = 14;
+	private static final int STANDARD_COLUMNS = 14;
+	private static final int ENTITY_COLUMNS = 4;
+	private static final int COREF_FROM_END = 4;
+	private static final int NE_FROM_END = 3;
+
+	// The pool is emptied between documents once it grows past these limits
+	private static final int MAX_POOL_SIZE = 1 << 20;
+	private static final int MAX_POOL_BYTES = 32 << 20;
+
+	private StringPool stringPool;
+	private CoNLLDocument document;
+
+	private byte[] bytes;
+	private int lineCount;
+	private int[] lineFieldOffsets = new int[64];
+	private int fieldCount;
+	private int[] fieldStarts = new int[1024];
+	private int[] fieldEnds = new int[1024];
+
+	private int openSpanCount;
+	private int[] openSpanStarts = new int[8];
+	private int[] openSpanLabels = new int[8];
+	private boolean[] openSpanRepresentatives = new boolean[8];
+
+	public CoNLLParser() {
+		this.stringPool = new StringPool();
+		this.document = new CoNLLDocument(stringPool);
+	}
+
+	public CoNLLDocument parse(Text text) throws CoNLLFormatException {
+		return parse(text.getBytes(), 0, text.getLength());
+	}
+
+	public CoNLLDocument parse(byte[] utf8, int start, int length) throws CoNLLFormatException {
+		startDocument();
+		this.bytes = utf8;
+
+		try {
+			int end = start + length;
+			int position = start;
+
+			while(position < end) {
+				int lineEnd = position;
+				while(lineEnd < end && utf8[lineEnd] != '\n') {
+					lineEnd++;
+				}
+
+				int contentEnd = lineEnd;
+				if(contentEnd > position && utf8[contentEnd - 1] == '\r') {
+					contentEnd--;
+				}
+
+				if(isBlank(position, contentEnd)) {
+					endSentence();
+				} else {
+					if(lineCount > 0 && isFirstLine(position, contentEnd)) {
+						endSentence();
+					}
+					addLine(position, contentEnd);
+				}
+
+				position = lineEnd + 1;
+			}
+
+			endSentence();
+			document.finish();
+		} finally {
+			this.bytes = null;
+		}
+
+		return document;
+	}
+
+	/**
+	 * Converts a document read by conlltools into the compact form.
+	 */
+	public CoNLLDocument convert(Document conllDocument) throws Exception {
+		startDocument();
+
+		for(Sentence conllSentence:conllDocument.getSentences()) {
+			int tokenCount = 0;
+			for(Token token:conllSentence.getTokens()) {
+				tokenCount = Math.max(tokenCount, token.getIndex());
+			}
+
+			CoNLLSentence sentence = document.addSentence();
+			sentence.reset(tokenCount);
+
+			for(Token token:conllSentence.getTokens()) {
+				if(token.getIndex() < 1) {
+					continue;
+				}
+
+				String head = token.getProperty(TokenPropertyIdentifier.PHEAD);
+				String predicateSense = token.getProperty(TokenPropertyIdentifier.PRED);
+
+				sentence.setToken(token.getIndex(),
+						internProperty(token, TokenPropertyIdentifier.FORM),
+						internProperty(token, TokenPropertyIdentifier.PLEMMA),
+						internProperty(token, TokenPropertyIdentifier.PPOS),
+						internProperty(token, TokenPropertyIdentifier.PDEPREL),
+						head == null || head.equals("_") ? CoNLLSentence.NONE : Integer.parseInt(head),
+						predicateSense == null || predicateSense.equals("_") ? CoNLLSentence.NONE : stringPool.intern(predicateSense));
+			}
+
+			for(Token predicateToken:conllSentence.getPredicateTokens()) {
+				sentence.addPredicateToken(predicateToken.getIndex());
+			}
+
+			for(Token token:conllSentence.getTokens()) {
+				for(Edge edge:conllSentence.getEdgesByFromType(token, EdgeType.SEMANTICROLE)) {
+					sentence.addArgument(token.getIndex(), edge.getTo().getIndex(), stringPool.intern(edge.getLabel()));
+				}
+			}
+
+			convertSpans(conllSentence.getSpansBySpanType(SpanType.NE), sentence.getNamedEntitySpans(), false);
+			convertSpans(conllSentence.getSpansBySpanType(SpanType.COREF), sentence.getCoreferenceSpans(), true);
+
+			sentence.finish();
+		}
+
+		document.finish();
+
+		return document;
+	}
+
+	private void startDocument() {
+		if(stringPool.size() > MAX_POOL_SIZE || stringPool.byteSize() > MAX_POOL_BYTES) {
+			stringPool.clear();
+		}
+
+		document.clear();
+		lineCount = 0;
+		fieldCount = 0;
+	}
+
+	private void addLine(int start, int end) {
+		if(lineCount + 2 > lineFieldOffsets.length) {
+			lineFieldOffsets = Arrays.copyOf(lineFieldOffsets, lineFieldOffsets.length * 2);
+		}
+
+		lineFieldOffsets[lineCount] = fieldCount;
+
+		int fieldStart = start;
+		for(int i=start; i<=end; i++) {
+			if(i == end || bytes[i] == '\t') {
+				addField(fieldStart, i);
+				fieldStart = i + 1;
+			}
+		}
+
+		// Trailing empty columns are dropped, as by String.split
+		while(fieldCount > lineFieldOffsets[lineCount] + 1 && fieldStarts[fieldCount - 1] == fieldEnds[fieldCount - 1]) {
+			fieldCount--;
+		}
+
+		lineCount++;
+		lineFieldOffsets[lineCount] = fieldCount;
+	}
+
+	private void addField(int start, int end) {
+		if(fieldCount == fieldStarts.length) {
+			fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+			fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+		}
+
+		fieldStarts[fieldCount] = start;
+		fieldEnds[fieldCount] = end;
+		fieldCount++;
+	}
+
+	private void endSentence() throws CoNLLFormatException {
+		if(lineCount == 0) {
+			return;
+		}
+
+		CoNLLSentence sentence = document.addSentence();
+		sentence.reset(lineCount);
+
+		int maxColumns = 0;
+		for(int line=0; line<lineCount; line++) {
+			int columns = getColumnCount(line);
+
+			if(columns < STANDARD_COLUMNS) {
+				throw new CoNLLFormatException("Unknown format: " + getLine(line));
+			}
+
+			if(parseInt(getField(line, ID), getFieldEnd(line, ID), line) != line + 1) {
+				throw new CoNLLFormatException("Unexpected token id: " + getLine(line));
+			}
+
+			maxColumns = Math.max(maxColumns, columns);
+		}
+
+		for(int line=0; line<lineCount; line++) {
+			int token = line + 1;
+			int head = CoNLLSentence.NONE;
+			int predicateSense = CoNLLSentence.NONE;
+
+			if(!isUnderscore(line, PHEAD)) {
+				head = parseInt(getField(line, PHEAD), getFieldEnd(line, PHEAD), line);
+
+				if(head < 0 || head > lineCount) {
+					throw new CoNLLFormatException("Predicted head index out of bounds: " + getLine(line));
+				}
+			}
+
+			if(!isUnderscore(line, PRED)) {
+				predicateSense = intern(line, PRED);
+			}
+
+			sentence.setToken(token, intern(line, FORM), intern(line, PLEMMA), intern(line, PPOS), intern(line, PDEPREL), head, predicateSense);
+
+			int fillPredStart = getField(line, FILLPRED);
+			if(getFieldEnd(line, FILLPRED) - fillPredStart == 1 && (bytes[fillPredStart] == 'Y' || bytes[fillPredStart] == 'y')) {
+				sentence.addPredicateToken(token);
+			}
+		}
+
+		int predicateCount = sentence.getPredicateCount();
+		for(int line=0; line<lineCount; line++) {
+			if(getColumnCount(line) < APRED + predicateCount) {
+				throw new CoNLLFormatException("Missing fields: " + getLine(line));
+			}
+
+			for(int i=0; i<predicateCount; i++) {
+				if(!isUnderscore(line, APRED + i)) {
+					sentence.addArgument(line + 1, sentence.getPredicateToken(i), intern(line, APRED + i));
+				}
+			}
+		}
+
+		// Entity columns are only read when every predicate has its column
+		if(maxColumns == STANDARD_COLUMNS + predicateCount + ENTITY_COLUMNS) {
+			parseSpans(sentence.getNamedEntitySpans(), NE_FROM_END, false);
+			parseSpans(sentence.getCoreferenceSpans(), COREF_FROM_END, true);
+		}
+
+		sentence.finish();
+
+		lineCount = 0;
+		fieldCount = 0;
+	}
+
+	/**
+	 * Reads the spans of one entity column. A value holds '|' separated
+	 * parts, where "(label" opens, "label)" closes and "(label)" opens and
+	 * closes a span. A closing part ends the last open span with the same
+	 * label.
+	 */
+	private void parseSpans(CoNLLSpans spans, int columnFromEnd, boolean coreference) throws CoNLLFormatException {
+		openSpanCount = 0;
+
+		for(int line=0; line<lineCount; line++) {
+			int column = getColumnCount(line) - columnFromEnd;
+			int start = getField(line, column);
+			int end = getFieldEnd(line, column);
+
+			// As by String.split, trailing empty parts are dropped
+			boolean trimmed = false;
+			while(end > start && bytes[end - 1] == '|') {
+				end--;
+				trimmed = true;
+			}
+
+			if(trimmed && end == start) {
+				continue;
+			}
+
+			int partStart = start;
+			for(int i=start; i<=end; i++) {
+				if(i == end || bytes[i] == '|') {
+					parseSpanPart(spans, line + 1, partStart, i, coreference);
+					partStart = i + 1;
+				}
+			}
+		}
+	}
+
+	private void parseSpanPart(CoNLLSpans spans, int token, int start, int end, boolean coreference) throws CoNLLFormatException {
+		if(end - start == 1 && bytes[start] == '-') {
+			return;
+		}
+
+		int labelStart = start;
+		while(labelStart < end && (bytes[labelStart] == '(' || bytes[labelStart] == ')')) {
+			labelStart++;
+		}
+
+		int labelEnd = labelStart;
+		while(labelEnd < end && bytes[labelEnd] != '(' && bytes[labelEnd] != ')') {
+			labelEnd++;
+		}
+
+		if(labelStart == labelEnd) {
+			throw new CoNLLFormatException("Illegal label format for span: " + new String(bytes, start, end - start, UTF8));
+		}
+
+		// The representative mark of a coreference chain is kept apart from the label
+		boolean representative = false;
+		if(coreference && bytes[labelEnd - 1] == '*' && labelEnd - labelStart > 1) {
+			representative = true;
+			labelEnd--;
+		}
+
+		int label = stringPool.intern(bytes, labelStart, labelEnd - labelStart);
+
+		if(bytes[start] == '(') {
+			if(openSpanCount == openSpanStarts.length) {
+				openSpanStarts = Arrays.copyOf(openSpanStarts, openSpanCount * 2);
+				openSpanLabels = Arrays.copyOf(openSpanLabels, openSpanCount * 2);
+				openSpanRepresentatives = Arrays.copyOf(openSpanRepresentatives, openSpanCount * 2);
+			}
+
+			openSpanStarts[openSpanCount] = token;
+			openSpanLabels[openSpanCount] = label;
+			openSpanRepresentatives[openSpanCount] = representative;
+			openSpanCount++;
+		}
+
+		if(bytes[end - 1] == ')') {
+			for(int i=openSpanCount - 1; i>=0; i--) {
+				if(openSpanLabels[i] == label && openSpanRepresentatives[i] == representative) {
+					spans.add(openSpanStarts[i], token, label, representative);
+
+					openSpanCount--;
+					System.arraycopy(openSpanStarts, i + 1, openSpanStarts, i, openSpanCount - i);
+					System.arraycopy(openSpanLabels, i + 1, openSpanLabels, i, openSpanCount - i);
+					System.arraycopy(openSpanRepresentatives, i + 1, openSpanRepresentatives, i, openSpanCount - i);
+					break;
+				}
+			}
+		}
+	}
+
+	private void convertSpans(List<Span> conllSpans, CoNLLSpans spans, boolean coreference) {
+		for(Span span:conllSpans) {
+			String label = span.getLabel();
+			boolean representative = false;
+
+			if(coreference && label.length() > 1 && label.endsWith("*")) {
+				representative = true;
+				label = label.substring(0, label.length() - 1);
+			}
+
+			spans.add(span.getStartToken().getIndex(), span.getEndToken().getIndex(), stringPool.intern(label), representative);
+		}
+	}
+
+	private int internProperty(Token token, TokenPropertyIdentifier identifier) throws Exception {
+		String value = token.getProperty(identifier);
+
+		return value == null ? CoNLLSentence.NONE : stringPool.intern(value);
+	}
+
+	private int intern(int line, int column) {
+		int start = getField(line, column);
+
+		return stringPool.intern(bytes, start, getFieldEnd(line, column) - start);
+	}
+
+	private int getColumnCount(int line) {
+		return lineFieldOffsets[line + 1] - lineFieldOffsets[line];
+	}
+
+	private int getField(int line, int column) {
+		return fieldStarts[lineFieldOffsets[line] + column];
+	}
+
+	private int getFieldEnd(int line, int column) {
+		return fieldEnds[lineFieldOffsets[line] + column];
+	}
+
+	private String getLine(int line) {
+		int start = getField(line, 0);
+		int end = getFieldEnd(line, getColumnCount(line) - 1);
+
+		return new String(bytes, start, end - start, UTF8);
+	}
+
+	private boolean isUnderscore(int line, int column) {
+		int start = getField(line, column);
+
+		return getFieldEnd(line, column) - start == 1 && bytes[start] == '_';
+	}
+
+	private boolean isBlank(int start, int end) {
+		for(int i=start; i<end; i++) {
+			if((bytes[i] & 0xFF) > ' ') {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns true if the first column of the line is "1", which starts a
+	 * new sentence even without a blank line in between.
+	 */
+	private boolean isFirstLine(int start, int end) {
+		int columnEnd = start;
+		while(columnEnd < end && bytes[columnEnd] != '\t') {
+			columnEnd++;
+		}
+
+		while(start < columnEnd && (bytes[start] & 0xFF) <= ' ') {
+			start++;
+		}
+
+		while(columnEnd > start && (bytes[columnEnd - 1] & 0xFF) <= ' ') {
+			columnEnd--;
+		}
+
+		return columnEnd - start == 1 && bytes[start] == '1';
+	}
+
+	private int parseInt(int start, int end, int line) throws CoNLLFormatException {
+		boolean negative = start < end && bytes[start] == '-';
+		int i = negative ? start + 1 : start;
+
+		if(i == end || end - i > 9) {
+			throw new CoNLLFormatException("Unknown format: " + getLine(line));
+		}
+
+		int value = 0;
+		for(; i<end; i++) {
+			int digit = bytes[i] - '0';
+
+			if(digit < 0 || digit > 9) {
+				throw new CoNLLFormatException("Unknown format: " + getLine(line));
+			}
+
+			value = value * 10 + digit;
+		}
+
+		return negative ? -value : value;
+	}
+}
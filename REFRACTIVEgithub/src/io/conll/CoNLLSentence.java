@@ -0,0 +1,246 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.conll;
+
+import java.util.Arrays;
+
+/**
+ * Compact form of a CoNLL sentence. Tokens are addressed by their CoNLL id,
+ * from 1 to {@link #getTokenCount()}, and 0 stands for the artificial root.
+ * Forms, lemmas, parts of speech, dependency relations, predicate senses
+ * and labels are ids into the {@link StringPool} of the document. Only the
+ * predicted columns (PLEMMA, PPOS, PHEAD, PDEPREL) are kept.
+ */
+public class CoNLLSentence {
+	public static final int NONE = -1;
+
+	private int tokenCount;
+	private int[] forms = new int[0];
+	private int[] lemmas = new int[0];
+	private int[] partsOfSpeech = new int[0];
+	private int[] dependencyRelations = new int[0];
+	private int[] heads = new int[0];
+	private int[] predicateSenses = new int[0];
+
+	private int[] childOffsets = new int[0];
+	private int[] children = new int[0];
+
+	private int predicateCount;
+	private int[] predicateTokens = new int[8];
+
+	private int argumentCount;
+	private int[] argumentTokens = new int[8];
+	private int[] argumentPredicates = new int[8];
+	private int[] argumentLabels = new int[8];
+	private int[] argumentOffsets = new int[0];
+	private int[] sortedArguments = new int[0];
+	private int[] positions = new int[0];
+
+	private CoNLLSpans namedEntitySpans = new CoNLLSpans();
+	private CoNLLSpans coreferenceSpans = new CoNLLSpans();
+
+	public int getTokenCount() {
+		return tokenCount;
+	}
+
+	public int getForm(int token) {
+		return forms[token];
+	}
+
+	public int getLemma(int token) {
+		return lemmas[token];
+	}
+
+	public int getPartOfSpeech(int token) {
+		return partsOfSpeech[token];
+	}
+
+	public int getDependencyRelation(int token) {
+		return dependencyRelations[token];
+	}
+
+	/**
+	 * Returns the predicted head of the token, 0 for the root or
+	 * {@link #NONE} if the token has no head.
+	 */
+	public int getHead(int token) {
+		return heads[token];
+	}
+
+	/**
+	 * Returns the predicate sense of the token, or {@link #NONE} if the
+	 * PRED column is empty.
+	 */
+	public int getPredicateSense(int token) {
+		return predicateSenses[token];
+	}
+
+	/**
+	 * Returns the number of dependents of the token, where token 0 is the
+	 * root.
+	 */
+	public int getChildCount(int token) {
+		return childOffsets[token + 1] - childOffsets[token];
+	}
+
+	/**
+	 * Returns the dependents of a token in sentence order.
+	 */
+	public int getChild(int token, int index) {
+		return children[childOffsets[token] + index];
+	}
+
+	public int getPredicateCount() {
+		return predicateCount;
+	}
+
+	public int getPredicateToken(int index) {
+		return predicateTokens[index];
+	}
+
+	/**
+	 * Returns the number of semantic roles the token fills.
+	 */
+	public int getArgumentCount(int token) {
+		return argumentOffsets[token + 1] - argumentOffsets[token];
+	}
+
+	/**
+	 * Returns the predicate token of a semantic role of the token, in
+	 * predicate order.
+	 */
+	public int getArgumentPredicate(int token, int index) {
+		return argumentPredicates[sortedArguments[argumentOffsets[token] + index]];
+	}
+
+	public int getArgumentLabel(int token, int index) {
+		return argumentLabels[sortedArguments[argumentOffsets[token] + index]];
+	}
+
+	public CoNLLSpans getNamedEntitySpans() {
+		return namedEntitySpans;
+	}
+
+	public CoNLLSpans getCoreferenceSpans() {
+		return coreferenceSpans;
+	}
+
+	void reset(int tokenCount) {
+		this.tokenCount = tokenCount;
+
+		if(forms.length < tokenCount + 1) {
+			int capacity = Math.max(tokenCount + 1, forms.length * 2);
+			forms = new int[capacity];
+			lemmas = new int[capacity];
+			partsOfSpeech = new int[capacity];
+			dependencyRelations = new int[capacity];
+			heads = new int[capacity];
+			predicateSenses = new int[capacity];
+			childOffsets = new int[capacity + 1];
+			children = new int[capacity];
+			argumentOffsets = new int[capacity + 1];
+		}
+
+		forms[0] = NONE;
+		lemmas[0] = NONE;
+		partsOfSpeech[0] = NONE;
+		dependencyRelations[0] = NONE;
+		heads[0] = NONE;
+		predicateSenses[0] = NONE;
+
+		predicateCount = 0;
+		argumentCount = 0;
+		namedEntitySpans.clear();
+		coreferenceSpans.clear();
+	}
+
+	void setToken(int token, int form, int lemma, int partOfSpeech, int dependencyRelation, int head, int predicateSense) {
+		forms[token] = form;
+		lemmas[token] = lemma;
+		partsOfSpeech[token] = partOfSpeech;
+		dependencyRelations[token] = dependencyRelation;
+		heads[token] = head;
+		predicateSenses[token] = predicateSense;
+	}
+
+	void addPredicateToken(int token) {
+		if(predicateCount == predicateTokens.length) {
+			predicateTokens = Arrays.copyOf(predicateTokens, predicateCount * 2);
+		}
+
+		predicateTokens[predicateCount++] = token;
+	}
+
+	void addArgument(int token, int predicateToken, int label) {
+		if(argumentCount == argumentTokens.length) {
+			argumentTokens = Arrays.copyOf(argumentTokens, argumentCount * 2);
+			argumentPredicates = Arrays.copyOf(argumentPredicates, argumentCount * 2);
+			argumentLabels = Arrays.copyOf(argumentLabels, argumentCount * 2);
+		}
+
+		argumentTokens[argumentCount] = token;
+		argumentPredicates[argumentCount] = predicateToken;
+		argumentLabels[argumentCount] = label;
+		argumentCount++;
+	}
+
+	/**
+	 * Groups dependents and semantic roles by token once all tokens have
+	 * been set. Both groupings are stable, so dependents stay in sentence
+	 * order and roles in the order they were added.
+	 */
+	void finish() {
+		if(positions.length < tokenCount + 2) {
+			positions = new int[childOffsets.length];
+		}
+
+		Arrays.fill(childOffsets, 0, tokenCount + 2, 0);
+		for(int token=1; token<=tokenCount; token++) {
+			if(heads[token] != NONE) {
+				childOffsets[heads[token] + 1]++;
+			}
+		}
+		for(int token=0; token<=tokenCount; token++) {
+			childOffsets[token + 1] += childOffsets[token];
+		}
+		System.arraycopy(childOffsets, 0, positions, 0, tokenCount + 2);
+		for(int token=1; token<=tokenCount; token++) {
+			if(heads[token] != NONE) {
+				children[positions[heads[token]]++] = token;
+			}
+		}
+
+		if(sortedArguments.length < argumentCount) {
+			sortedArguments = new int[argumentTokens.length];
+		}
+		Arrays.fill(argumentOffsets, 0, tokenCount + 2, 0);
+		for(int i=0; i<argumentCount; i++) {
+			argumentOffsets[argumentTokens[i] + 1]++;
+		}
+		for(int token=0; token<=tokenCount; token++) {
+			argumentOffsets[token + 1] += argumentOffsets[token];
+		}
+		System.arraycopy(argumentOffsets, 0, positions, 0, tokenCount + 2);
+		for(int i=0; i<argumentCount; i++) {
+			sortedArguments[positions[argumentTokens[i]]++] = i;
+		}
+	}
+}
@@ -0,0 +1,80 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.conll;
+
+import java.util.Arrays;
+
+/**
+ * The spans of one type within a sentence, kept as parallel arrays of
+ * start token, end token and label id. Spans are stored in the order they
+ * are closed, which is the order conlltools lists them in.
+ */
+public class CoNLLSpans {
+	private int count;
+	private int[] starts = new int[8];
+	private int[] ends = new int[8];
+	private int[] labels = new int[8];
+	private boolean[] representatives = new boolean[8];
+
+	public int getCount() {
+		return count;
+	}
+
+	public int getStart(int span) {
+		return starts[span];
+	}
+
+	public int getEnd(int span) {
+		return ends[span];
+	}
+
+	public int getLabel(int span) {
+		return labels[span];
+	}
+
+	/**
+	 * Returns true if the span is the representative mention of its
+	 * coreference chain, i.e. its label was marked with a trailing '*'. The
+	 * marker is not part of the stored label.
+	 */
+	public boolean isRepresentative(int span) {
+		return representatives[span];
+	}
+
+	void clear() {
+		count = 0;
+	}
+
+	void add(int start, int end, int label, boolean representative) {
+		if(count == starts.length) {
+			starts = Arrays.copyOf(starts, count * 2);
+			ends = Arrays.copyOf(ends, count * 2);
+			labels = Arrays.copyOf(labels, count * 2);
+			representatives = Arrays.copyOf(representatives, count * 2);
+		}
+
+		starts[count] = start;
+		ends[count] = end;
+		labels[count] = label;
+		representatives[count] = representative;
+		count++;
+	}
+}
@@ -0,0 +1,190 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.conll;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Interns UTF-8 byte sequences as dense integer ids. The bytes of every
+ * distinct value are copied once into a shared buffer, and the
+ * <code>String</code> of a value is only created the first time it is
+ * asked for.
+ */
+public class StringPool {
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private byte[] bytes;
+	private int byteCount;
+	private int[] offsets;
+	private int[] hashes;
+	private String[] strings;
+	private int size;
+	private int[] table;
+
+	public StringPool() {
+		bytes = new byte[INITIAL_CAPACITY * 8];
+		offsets = new int[INITIAL_CAPACITY + 1];
+		hashes = new int[INITIAL_CAPACITY];
+		strings = new String[INITIAL_CAPACITY];
+		table = new int[INITIAL_CAPACITY * 2];
+		Arrays.fill(table, -1);
+	}
+
+	/**
+	 * Returns the id of the given bytes, adding them to the pool if they
+	 * have not been seen before.
+	 */
+	public int intern(byte[] utf8, int start, int length) {
+		int hash = hash(utf8, start, length);
+		int slot = findSlot(utf8, start, length, hash);
+
+		if(table[slot] >= 0) {
+			return table[slot];
+		}
+
+		ensureCapacity(length);
+
+		int id = size++;
+		System.arraycopy(utf8, start, bytes, byteCount, length);
+		offsets[id] = byteCount;
+		byteCount += length;
+		offsets[id + 1] = byteCount;
+		hashes[id] = hash;
+		table[slot] = id;
+
+		if(size * 2 > table.length) {
+			rehash(table.length * 2);
+		}
+
+		return id;
+	}
+
+	public int intern(String value) {
+		byte[] utf8 = value.getBytes(UTF8);
+		int id = intern(utf8, 0, utf8.length);
+
+		if(strings[id] == null) {
+			strings[id] = value;
+		}
+
+		return id;
+	}
+
+	/**
+	 * Returns the id of the given bytes, or -1 if they are not in the pool.
+	 */
+	public int find(byte[] utf8, int start, int length) {
+		return table[findSlot(utf8, start, length, hash(utf8, start, length))];
+	}
+
+	public String get(int id) {
+		if(strings[id] == null) {
+			strings[id] = new String(bytes, offsets[id], offsets[id + 1] - offsets[id], UTF8);
+		}
+
+		return strings[id];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of bytes held by the pool.
+	 */
+	public int byteSize() {
+		return byteCount;
+	}
+
+	public void clear() {
+		Arrays.fill(strings, 0, size, null);
+		Arrays.fill(table, -1);
+		size = 0;
+		byteCount = 0;
+	}
+
+	private int findSlot(byte[] utf8, int start, int length, int hash) {
+		int mask = table.length - 1;
+		int slot = hash & mask;
+
+		while(table[slot] >= 0 && !matches(table[slot], hash, utf8, start, length)) {
+			slot = (slot + 1) & mask;
+		}
+
+		return slot;
+	}
+
+	private boolean matches(int id, int hash, byte[] utf8, int start, int length) {
+		int offset = offsets[id];
+
+		if(hashes[id] != hash || offsets[id + 1] - offset != length) {
+			return false;
+		}
+
+		for(int i=0; i<length; i++) {
+			if(bytes[offset + i] != utf8[start + i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private void ensureCapacity(int length) {
+		if(byteCount + length > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, byteCount + length));
+		}
+
+		if(size + 1 >= hashes.length) {
+			int capacity = hashes.length * 2;
+			offsets = Arrays.copyOf(offsets, capacity + 1);
+			hashes = Arrays.copyOf(hashes, capacity);
+			strings = Arrays.copyOf(strings, capacity);
+		}
+	}
+
+	private void rehash(int capacity) {
+		table = new int[capacity];
+		Arrays.fill(table, -1);
+		int mask = capacity - 1;
+
+		for(int id=0; id<size; id++) {
+			int slot = hashes[id] & mask;
+			while(table[slot] >= 0) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = id;
+		}
+	}
+
+	private static int hash(byte[] utf8, int start, int length) {
+		int hash = 1;
+
+		for(int i=start; i<start + length; i++) {
+			hash = 31 * hash + utf8[i];
+		}
+
+		// Spreads the low bits used by the table
+		return hash ^ (hash >>> 16);
+	}
+}
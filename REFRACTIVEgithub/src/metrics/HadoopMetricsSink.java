@@ -0,0 +1,38 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package metrics;
+
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+
+public class HadoopMetricsSink extends MetricsSink {
+	@SuppressWarnings("rawtypes")
+	private TaskInputOutputContext context;
+
+	public HadoopMetricsSink(@SuppressWarnings("rawtypes") TaskInputOutputContext context) {
+		this.context = context;
+	}
+
+	@Override
+	public void increment(String group, String name, long amount) {
+		context.getCounter(group, name).increment(amount);
+	}
+
+}
@@ -1,84 +1,107 @@
-/**
- * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
- * Copyright © 2013 Peter Exner
- * 
- * This file is part of Refractive.
- *
- * Refractive is free software: you can redistribute it and/or modify
- * it under the terms of the GNU General Public License as published by
- * the Free Software Foundation, either version 3 of the License, or
- * (at your option) any later version.
- *
- * Refractive is distributed in the hope that it will be useful,
- * but WITHOUT ANY WARRANTY; without even the implied warranty of
- * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
- * GNU General Public License for more details.
- *
- * You should have received a copy of the GNU General Public License
- * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
- */
-
-package query;
-
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-
-import io.Frame;
-import io.Slot;
-
-public class ProjectionQuery {
-	List<SlotQuery> slotQueryList;
-	
-	public ProjectionQuery(String query) {
-		this.parseQueryString(query);
-	}
-	
-	public Frame parseQuery(Frame frame) {
-		if(slotQueryList.size() == 0) {
-			return null;
-		}
-		
-		Iterator<Slot> slotIterator = frame.getSlots().iterator();
-		Iterator<SlotQuery> slotQueryIterator = slotQueryList.iterator();
-		Slot slot;
-		SlotQuery slotQuery;
-		
-		if(slotQueryIterator.hasNext()) {
-			slotQuery = slotQueryIterator.next();
-		} else {
-			return null;
-		}
-		
-		Frame projectedFrame = new Frame();
-		projectedFrame.setFrameId(frame.getFrameId());
-		
-		while(slotIterator.hasNext() && (this.slotQueryList.size() != projectedFrame.getSlots().size())) {
-			slot = slotIterator.next();
-			
-			if(slotQuery.match(slot)) {
-				projectedFrame.getSlots().add(slot);
-				
-				if(slotQueryIterator.hasNext()) {
-					slotQuery = slotQueryIterator.next();
-				}
-			}
-		}
-		
-		if(this.slotQueryList.size() == projectedFrame.getSlots().size()) {
-			return projectedFrame;
-		} else {
-			return null;
-		}			
-	}
-	
-	private void parseQueryString(String query) {
-		this.slotQueryList = new ArrayList<SlotQuery>();
-		
-		String[] slotQueries = query.split(",");
-		for(int i=0; i<slotQueries.length; i++) {
-			SlotQuery slotQuery = new SlotQuery(slotQueries[i]);
-			slotQueryList.add(slotQuery);
-		}
-	}
-}
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.Frame;
+import io.Slot;
+
+/**
+ * Projects frames onto a comma-separated list of slot queries: a frame is
+ * projected if its slots, in order, hold a match for every query, and the
+ * projection holds the first such matches. The query is compiled into an
+ * array of {@link SlotQuery}s and the mask of their relation bits, which
+ * rejects most frames by their {@link Frame#getRelationMask() relation mask}
+ * alone.
+ */
+public class ProjectionQuery {
+	List<SlotQuery> slotQueryList;
+	private SlotQuery[] slotQueries;
+	private long relationMask;
+	private final Frame projectedFrame = new Frame();
+	private final List<Slot> projectedSlots = projectedFrame.getSlots();
+	
+	public ProjectionQuery(String query) {
+		this.parseQueryString(query);
+	}
+	
+	/**
+	 * Returns the projection of a frame, or <code>null</code> if the frame
+	 * does not match. The projection is the same object for every call and
+	 * holds slots of the given frame, so it is only valid until the next call
+	 * and as long as the slots of the frame are.
+	 */
+	public Frame parseQuery(Frame frame) {
+		if(slotQueries.length == 0 || (frame.getRelationMask() & relationMask) != relationMask) {
+			return null;
+		}
+		
+		projectedSlots.clear();
+		projectedFrame.setFrameId(frame.getFrameId());
+		
+		int slotCount = frame.getSlotCount();
+		int queryIndex = 0;
+		
+		for(int i=0; i<slotCount && queryIndex<slotQueries.length; i++) {
+			Slot slot = frame.getSlot(i);
+			
+			if(slotQueries[queryIndex].match(slot)) {
+				projectedSlots.add(slot);
+				queryIndex++;
+			}
+		}
+		
+		if(queryIndex == slotQueries.length) {
+			return projectedFrame;
+		} else {
+			return null;
+		}			
+	}
+	
+	/**
+	 * Returns the relations of the slot queries, which are all a frame
+	 * needs to hold to be projected.
+	 */
+	public List<String> getRelations() {
+		List<String> relations = new ArrayList<String>();
+
+		for(SlotQuery slotQuery:slotQueryList) {
+			relations.add(slotQuery.getTargetRelation());
+		}
+
+		return relations;
+	}
+
+	private void parseQueryString(String query) {
+		this.slotQueryList = new ArrayList<SlotQuery>();
+		
+		String[] slotQueryStrings = query.split(",");
+		for(int i=0; i<slotQueryStrings.length; i++) {
+			SlotQuery slotQuery = new SlotQuery(slotQueryStrings[i]);
+			slotQueryList.add(slotQuery);
+			relationMask |= slotQuery.getRelationBit();
+		}
+		
+		this.slotQueries = slotQueryList.toArray(new SlotQuery[slotQueryList.size()]);
+	}
+}
@@ -0,0 +1,237 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package query;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * A list of projections that a tool evaluates in one pass over the frames.
+ * Every entry has the same number of projections, e.g. a target and a
+ * conditional projection.
+ * <p>
+ * A set is either a single unnamed entry given on the command line, or read
+ * from a file given as <code>@path</code>. Each line of such a file holds a
+ * name and the projections of an entry, separated by tabs; empty lines and
+ * lines starting with # are skipped. The name of an entry is the name of its
+ * output, so it may only hold letters and digits.
+ */
+public class ProjectionQuerySet {
+	private final List<String> names = new ArrayList<String>();
+	private final List<String[]> projections = new ArrayList<String[]>();
+	private final int projectionCount;
+
+	private ProjectionQuerySet(int projectionCount) {
+		this.projectionCount = projectionCount;
+	}
+
+	/**
+	 * Returns whether a command-line argument names a projection file.
+	 */
+	public static boolean isFile(String argument) {
+		return argument.startsWith("@");
+	}
+
+	/**
+	 * Creates a set of one unnamed entry.
+	 */
+	public static ProjectionQuerySet of(String... projections) {
+		ProjectionQuerySet querySet = new ProjectionQuerySet(projections.length);
+		querySet.names.add(null);
+		querySet.projections.add(projections);
+
+		return querySet;
+	}
+
+	/**
+	 * Reads the entries of a projection file given as <code>@path</code>,
+	 * each with the given number of projections.
+	 */
+	public static ProjectionQuerySet read(String argument, int projectionCount, Configuration conf) throws IOException {
+		Path path = new Path(argument.substring(1));
+		FileSystem fs = path.getFileSystem(conf);
+		ProjectionQuerySet querySet = new ProjectionQuerySet(projectionCount);
+		BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(path), "UTF-8"));
+
+		try {
+			String line;
+			int lineNumber = 0;
+
+			while((line = reader.readLine()) != null) {
+				lineNumber++;
+
+				if(line.trim().length() == 0 || line.trim().startsWith("#")) {
+					continue;
+				}
+
+				String[] fields = line.split("\t");
+				String name = fields[0].trim();
+
+				if(fields.length != projectionCount + 1) {
+					throw new IOException(path + ":" + lineNumber + ": expected a name and " + projectionCount + " projection(s) separated by tabs");
+				}
+				// part and partial are the names of the job's own outputs
+				if(!name.matches("[A-Za-z0-9]+") || name.equals("part") || name.equals("partial")) {
+					throw new IOException(path + ":" + lineNumber + ": invalid output name: " + name);
+				}
+				if(querySet.names.contains(name)) {
+					throw new IOException(path + ":" + lineNumber + ": duplicate output name: " + name);
+				}
+
+				String[] entryProjections = new String[projectionCount];
+				for(int i=0; i<projectionCount; i++) {
+					entryProjections[i] = fields[i + 1].trim();
+				}
+
+				querySet.names.add(name);
+				querySet.projections.add(entryProjections);
+			}
+		} finally {
+			reader.close();
+		}
+
+		if(querySet.size() == 0) {
+			throw new IOException("No projections in " + path);
+		}
+
+		return querySet;
+	}
+
+	/**
+	 * Stores the set in a job configuration under the given key.
+	 */
+	public void write(Configuration conf, String key) {
+		conf.setInt(key + ".count", size());
+		conf.setInt(key + ".projections", projectionCount);
+
+		for(int i=0; i<size(); i++) {
+			if(names.get(i) != null) {
+				conf.set(key + "." + i + ".name", names.get(i));
+			}
+
+			for(int j=0; j<projectionCount; j++) {
+				conf.set(key + "." + i + "." + j, projections.get(i)[j]);
+			}
+		}
+	}
+
+	/**
+	 * Reads a set stored by {@link #write(Configuration, String)}.
+	 */
+	public static ProjectionQuerySet read(Configuration conf, String key) {
+		ProjectionQuerySet querySet = new ProjectionQuerySet(conf.getInt(key + ".projections", 1));
+		int count = conf.getInt(key + ".count", 0);
+
+		for(int i=0; i<count; i++) {
+			String[] entryProjections = new String[querySet.projectionCount];
+			for(int j=0; j<querySet.projectionCount; j++) {
+				entryProjections[j] = conf.get(key + "." + i + "." + j);
+			}
+
+			querySet.names.add(conf.get(key + "." + i + ".name"));
+			querySet.projections.add(entryProjections);
+		}
+
+		return querySet;
+	}
+
+	public int size() {
+		return names.size();
+	}
+
+	/**
+	 * Returns whether the entries are named, i.e. whether results go to an
+	 * output per entry.
+	 */
+	public boolean isNamed() {
+		return size() > 0 && names.get(0) != null;
+	}
+
+	public String getName(int entry) {
+		return names.get(entry);
+	}
+
+	public String getProjection(int entry, int projection) {
+		return projections.get(entry)[projection];
+	}
+
+	/**
+	 * Compiles the given projection of every entry.
+	 */
+	public ProjectionQuery[] compile(int projection) {
+		ProjectionQuery[] queries = new ProjectionQuery[size()];
+
+		for(int i=0; i<size(); i++) {
+			queries[i] = new ProjectionQuery(getProjection(i, projection));
+		}
+
+		return queries;
+	}
+
+	/**
+	 * Returns the relations of all projections of all entries.
+	 */
+	public Set<String> getRelations() {
+		Set<String> relations = new LinkedHashSet<String>();
+
+		for(int i=0; i<size(); i++) {
+			for(int j=0; j<projectionCount; j++) {
+				relations.addAll(new ProjectionQuery(getProjection(i, j)).getRelations());
+			}
+		}
+
+		return relations;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		String separator = "";
+
+		for(int i=0; i<size(); i++) {
+			sb.append(separator);
+			if(names.get(i) != null) {
+				sb.append(names.get(i));
+				sb.append("=");
+			}
+
+			String projectionSeparator = "";
+			for(int j=0; j<projectionCount; j++) {
+				sb.append(projectionSeparator);
+				sb.append(projections.get(i)[j]);
+				projectionSeparator = " | ";
+			}
+
+			separator = "; ";
+		}
+
+		return sb.toString();
+	}
+}
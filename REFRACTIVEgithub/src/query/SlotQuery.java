@@ -1,52 +1,139 @@
-/**
- * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
- * Copyright © 2013 Peter Exner
- * 
- * This file is part of Refractive.
- *
- * Refractive is free software: you can redistribute it and/or modify
- * it under the terms of the GNU General Public License as published by
- * the Free Software Foundation, either version 3 of the License, or
- * (at your option) any later version.
- *
- * Refractive is distributed in the hope that it will be useful,
- * but WITHOUT ANY WARRANTY; without even the implied warranty of
- * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
- * GNU General Public License for more details.
- *
- * You should have received a copy of the GNU General Public License
- * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
- */
-
-package query;
-
-import io.Slot;
-
-public class SlotQuery {
-	String targetRelation;
-	boolean requireProperNoun;
-	
-	public SlotQuery(String query) {
-		String[] queryParts = query.trim().split(":");
-		if(queryParts.length == 2) {
-			this.targetRelation = queryParts[0].trim();
-			
-			if(queryParts[1].trim().equalsIgnoreCase("Y")) {
-				requireProperNoun = true;
-			} else {
-				requireProperNoun = false;
-			}
-		} else {
-			this.targetRelation = query.trim();
-			requireProperNoun = false;
-		} 
-	}
-	
-	public boolean match(Slot slot) {
-		if(this.requireProperNoun) {
-			return slot.getRelation().equalsIgnoreCase(targetRelation) && slot.getIsProperNoun();
-		} else {
-			return slot.getRelation().equalsIgnoreCase(targetRelation);
-		}
-	}
-}
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package query;
+
+import io.RelationPool;
+import io.Slot;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparator;
+
+/**
+ * Matches slots by relation, ignoring case, and optionally requires them to
+ * be proper nouns and their values to pass a predicate. The target relation
+ * is split into its parts once, so that matching a slot compares the folded
+ * {@link RelationPool} ids of the parts.
+ * <p>
+ * A query is written <code>RELATION[:Y][PREDICATE]</code>, where the
+ * predicate is one of <code>=value</code>, <code>={value1|value2}</code>
+ * and <code>=prefix*</code>, or one of these with <code>!=</code> to
+ * negate it. Values are compared case-sensitively on their UTF-8 bytes, so
+ * slots read from a file are never decoded to strings.
+ */
+public class SlotQuery {
+	String targetRelation;
+	boolean requireProperNoun;
+	int targetBaseRelation;
+	Slot.Kind targetKind;
+	int targetSemanticLabel;
+	long targetRelationBit;
+	boolean hasValuePredicate;
+	boolean negateValuePredicate;
+	Text targetValue;
+	boolean isPrefix;
+	Set<Text> targetValues;
+	
+	public SlotQuery(String query) {
+		int predicateIndex = query.indexOf('=');
+		if(predicateIndex >= 0) {
+			hasValuePredicate = true;
+			negateValuePredicate = predicateIndex > 0 && query.charAt(predicateIndex - 1) == '!';
+			parseValuePredicate(query.substring(predicateIndex + 1).trim());
+			query = query.substring(0, negateValuePredicate ? predicateIndex - 1 : predicateIndex);
+		}
+		
+		String[] queryParts = query.trim().split(":");
+		if(queryParts.length == 2) {
+			this.targetRelation = queryParts[0].trim();
+			
+			if(queryParts[1].trim().equalsIgnoreCase("Y")) {
+				requireProperNoun = true;
+			} else {
+				requireProperNoun = false;
+			}
+		} else {
+			this.targetRelation = query.trim();
+			requireProperNoun = false;
+		} 
+
+		Slot targetSlot = new Slot();
+		targetSlot.setRelation(targetRelation);
+		this.targetBaseRelation = RelationPool.getFoldedId(targetSlot.getBaseRelation());
+		this.targetKind = targetSlot.getKind();
+		this.targetSemanticLabel = RelationPool.getFoldedId(targetSlot.getSemanticLabel());
+		this.targetRelationBit = Slot.getRelationBit(targetBaseRelation, targetKind, targetSemanticLabel);
+	}
+	
+	private void parseValuePredicate(String predicate) {
+		if(predicate.startsWith("{") && predicate.endsWith("}")) {
+			targetValues = new HashSet<Text>();
+			
+			for(String value:predicate.substring(1, predicate.length() - 1).split("\\|")) {
+				targetValues.add(new Text(value.trim()));
+			}
+		} else if(predicate.endsWith("*")) {
+			isPrefix = true;
+			targetValue = new Text(predicate.substring(0, predicate.length() - 1));
+		} else {
+			targetValue = new Text(predicate);
+		}
+	}
+	
+	public String getTargetRelation() {
+		return targetRelation;
+	}
+
+	/**
+	 * Returns the bit that the relation mask of a frame has if the frame may
+	 * hold a matching slot.
+	 */
+	public long getRelationBit() {
+		return targetRelationBit;
+	}
+
+	public boolean match(Slot slot) {
+		if(slot.getKind() != targetKind
+				|| RelationPool.getFoldedId(slot.getBaseRelation()) != targetBaseRelation
+				|| RelationPool.getFoldedId(slot.getSemanticLabel()) != targetSemanticLabel) {
+			return false;
+		}
+
+		if(this.requireProperNoun && !slot.getIsProperNoun()) {
+			return false;
+		}
+
+		return !hasValuePredicate || matchValue(slot.getValueBytes()) != negateValuePredicate;
+	}
+
+	private boolean matchValue(Text value) {
+		if(targetValues != null) {
+			return targetValues.contains(value);
+		} else if(isPrefix) {
+			return value.getLength() >= targetValue.getLength()
+					&& WritableComparator.compareBytes(value.getBytes(), 0, targetValue.getLength(), targetValue.getBytes(), 0, targetValue.getLength()) == 0;
+		} else {
+			return value.equals(targetValue);
+		}
+	}
+}
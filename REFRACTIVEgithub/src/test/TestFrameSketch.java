@@ -0,0 +1,165 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package test;
+
+import io.Frame;
+import io.FrameKey;
+import io.Slot;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+
+import tool.statistics.FrameSketch;
+import tool.statistics.FrequencyEstimate;
+
+/**
+ * Checks the estimates of {@link FrameSketch}es on a skewed stream of a
+ * million keys, counted in four sketches that are written, read back and
+ * merged as by the reducer of tool.statistics.ApproximateFrequencyStatistics.
+ * The true count of every heavy hitter must lie within its bounds, every
+ * key seen more than total / capacity times must be among the heavy
+ * hitters, as a space-saving table guarantees, and the distinct count must
+ * be within 3% of the true count, about four standard errors.
+ * Run with the Hadoop jars on the class path; it exits with an exception
+ * if a check fails.
+ */
+public class TestFrameSketch {
+	private static final int KEYS = 1000000;
+	private static final int VALUES = 300000;
+	private static final int FREQUENT_VALUES = 20;
+	private static final double FREQUENT_SHARE = 0.4;
+	private static final int TASKS = 4;
+	private static final int WIDTH = 8192;
+	private static final int DEPTH = 4;
+	private static final int CAPACITY = 100;
+	private static final int PRECISION = 14;
+
+	public static void main(String[] args) throws IOException {
+		Random random = new Random(1);
+		Map<String, long[]> counts = new HashMap<String, long[]>();
+		FrameSketch merged = new FrameSketch(WIDTH, DEPTH, CAPACITY, PRECISION);
+		Frame frame = new Frame();
+		Slot slot = new Slot();
+		FrameKey key = new FrameKey();
+
+		slot.setRelation("VERB");
+		slot.setIsProperNoun(false);
+		frame.getSlots().add(slot);
+
+		for(int task=0; task<TASKS; task++) {
+			FrameSketch sketch = new FrameSketch(WIDTH, DEPTH, CAPACITY, PRECISION);
+
+			for(int i=0; i<KEYS / TASKS; i++) {
+				// A few frequent values, then a long tail in which small values
+				// are far more frequent than large ones
+				String value;
+				if(random.nextDouble() < FREQUENT_SHARE) {
+					value = "frequent" + random.nextInt(FREQUENT_VALUES);
+				} else {
+					value = "verb" + (int)(Math.pow(random.nextDouble(), 4) * VALUES);
+				}
+
+				slot.setValue(value);
+				key.setSlotValues(frame);
+				sketch.add(key, frame);
+
+				long[] count = counts.get(value);
+				if(count == null) {
+					count = new long[1];
+					counts.put(value, count);
+				}
+				count[0]++;
+			}
+
+			merged.add(copy(sketch));
+		}
+
+		if(merged.getTotal() != KEYS) {
+			throw new IllegalStateException("Expected a total of " + KEYS + " but found " + merged.getTotal());
+		}
+
+		List<String> heavyValues = new ArrayList<String>();
+		long previousCount = Long.MAX_VALUE;
+
+		for(Map.Entry<FrameKey, FrequencyEstimate> entry:merged.getHeavyHitters()) {
+			merged.getFrame(entry.getKey(), frame);
+			if(!"VERB".equals(frame.getSlots().get(0).getRelation())) {
+				throw new IllegalStateException("Heavy hitter written without the frame it was counted with");
+			}
+			String value = frame.getSlots().get(0).getValue();
+			FrequencyEstimate estimate = entry.getValue();
+			long count = counts.get(value)[0];
+
+			if(count > estimate.getCount() || count < estimate.getCount() - estimate.getError()) {
+				throw new IllegalStateException("Count " + count + " of " + value + " out of the bounds of " + estimate);
+			}
+			if(estimate.getCount() > previousCount) {
+				throw new IllegalStateException("Heavy hitters not in decreasing order of their counts");
+			}
+
+			previousCount = estimate.getCount();
+			heavyValues.add(value);
+		}
+
+		int guaranteedKeys = 0;
+		for(Map.Entry<String, long[]> entry:counts.entrySet()) {
+			if(entry.getValue()[0] > KEYS / CAPACITY) {
+				if(!heavyValues.contains(entry.getKey())) {
+					throw new IllegalStateException(entry.getKey() + ", seen " + entry.getValue()[0] + " times, is not a heavy hitter");
+				}
+				guaranteedKeys++;
+			}
+		}
+
+		double error = Math.abs(merged.getDistinctCount() - counts.size()) / (double)counts.size();
+		System.out.println("Heavy hitters: " + heavyValues.size() + " (" + guaranteedKeys + " guaranteed), distinct keys: " + counts.size() + ", estimated: " + merged.getDistinctCount() + " (error " + String.format("%.2f", 100 * error) + "%)");
+
+		if(error > 0.03) {
+			throw new IllegalStateException("Distinct count off by more than 3%");
+		}
+
+		System.out.println("All checks passed");
+	}
+
+	/**
+	 * Returns a sketch written and read back, as sent from a mapper to a
+	 * reducer.
+	 */
+	private static FrameSketch copy(FrameSketch sketch) throws IOException {
+		DataOutputBuffer out = new DataOutputBuffer();
+		sketch.write(out);
+
+		DataInputBuffer in = new DataInputBuffer();
+		in.reset(out.getData(), out.getLength());
+
+		FrameSketch copy = new FrameSketch();
+		copy.readFields(in);
+
+		return copy;
+	}
+}
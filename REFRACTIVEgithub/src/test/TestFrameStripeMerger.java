@@ -0,0 +1,139 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package test;
+
+import io.Frame;
+import io.FrameKey;
+import io.Slot;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import tool.statistics.FrameStripe;
+import tool.statistics.FrameStripeMerger;
+
+/**
+ * Checks that a {@link FrameStripeMerger} gives the same counts whether it
+ * keeps all counts in memory, spills them once, or spills every stripe it
+ * is given. Run with the Hadoop jars on the class path; it exits with an
+ * exception if a check fails.
+ */
+public class TestFrameStripeMerger {
+	private static final int STRIPES = 50;
+	private static final int KEYS = 1000;
+	private static final int KEYS_PER_STRIPE = 200;
+
+	public static void main(String[] args) throws IOException {
+		Random random = new Random(1);
+		List<FrameStripe> stripes = new ArrayList<FrameStripe>();
+		Map<FrameKey, Long> expected = new HashMap<FrameKey, Long>();
+		long expectedMarginal = 0;
+		FrameStripe all = new FrameStripe();
+
+		for(int i=0; i<STRIPES; i++) {
+			FrameStripe stripe = new FrameStripe();
+
+			for(int j=0; j<KEYS_PER_STRIPE; j++) {
+				// The last key is only in the last stripe
+				int value = (i == STRIPES - 1 && j == 0) ? KEYS : random.nextInt(KEYS);
+				long count = 1 + random.nextInt(10);
+				FrameKey key = makeKey(value);
+
+				stripe.add(key, count);
+				stripe.addMarginal(count);
+				Long total = expected.get(key);
+				expected.put(key, (total == null) ? count : total + count);
+				expectedMarginal += count;
+			}
+
+			stripes.add(stripe);
+			all.add(stripe);
+		}
+
+		// Only the last stripe brings the merged stripe to its full size
+		check(stripes, expected, expectedMarginal, Long.MAX_VALUE, 0);
+		check(stripes, expected, expectedMarginal, all.getBytes(), 1);
+		check(stripes, expected, expectedMarginal, 1, STRIPES);
+
+		System.out.println("All checks passed");
+	}
+
+	private static void check(List<FrameStripe> stripes, Map<FrameKey, Long> expected, long expectedMarginal, long maximumBytes, int expectedRuns) throws IOException {
+		FrameStripeMerger merger = new FrameStripeMerger(maximumBytes);
+
+		try {
+			for(FrameStripe stripe:stripes) {
+				merger.add(stripe);
+			}
+
+			Map<FrameKey, Long> counts = new HashMap<FrameKey, Long>();
+			FrameKey key = new FrameKey();
+			FrameKey previousKey = null;
+			long count;
+
+			while((count = merger.next(key)) >= 0) {
+				if(merger.getRunCount() > 0 && previousKey != null && previousKey.compareTo(key) >= 0) {
+					throw new IllegalStateException("Counts not in key order with " + merger.getRunCount() + " runs");
+				}
+
+				FrameKey countedKey = new FrameKey();
+				countedKey.set(key);
+				if(counts.put(countedKey, count) != null) {
+					throw new IllegalStateException("Key read twice with " + merger.getRunCount() + " runs");
+				}
+				previousKey = countedKey;
+			}
+
+			System.out.println("Bound " + maximumBytes + ": " + merger.getRunCount() + " runs, " + counts.size() + " keys");
+
+			if(merger.getRunCount() != expectedRuns) {
+				throw new IllegalStateException("Expected " + expectedRuns + " runs but found " + merger.getRunCount());
+			}
+			if(merger.getMarginal() != expectedMarginal) {
+				throw new IllegalStateException("Expected marginal " + expectedMarginal + " but found " + merger.getMarginal());
+			}
+			if(!counts.equals(expected)) {
+				throw new IllegalStateException("Merged counts differ with " + merger.getRunCount() + " runs");
+			}
+		} finally {
+			merger.close();
+		}
+	}
+
+	private static FrameKey makeKey(int value) throws IOException {
+		Frame frame = new Frame();
+		Slot slot = new Slot();
+
+		slot.setRelation("VERB");
+		slot.setValue("verb" + value);
+		slot.setIsProperNoun(false);
+		frame.getSlots().add(slot);
+
+		FrameKey key = new FrameKey();
+		key.set(frame);
+
+		return key;
+	}
+}
@@ -0,0 +1,205 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package tool.dictionary;
+
+import io.Frame;
+import io.FrameDictionary;
+import io.IntFrameInputFormat;
+import io.Slot;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.reduce.LongSumReducer;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.log4j.Logger;
+
+/**
+ * Builds a {@link FrameDictionary} from frames. A job counts every relation,
+ * after which the counts are read back and the relations are given ids in
+ * order of decreasing frequency. Frames encoded with an earlier dictionary
+ * are read when it is given with -D dictionary=path.
+ */
+public class BuildDictionary extends Configured implements Tool  {
+	private static final Logger sLogger = Logger.getLogger(BuildDictionary.class);
+
+	private static final String COUNTS_DIRECTORY = "counts";
+
+	public static class MapClass extends
+	Mapper<LongWritable, Frame, Text, LongWritable> {
+
+		private static Text relation = new Text();
+		private static LongWritable one = new LongWritable(1);
+
+		@Override
+		public void map(LongWritable key, Frame frame, Context context)
+				throws IOException,
+				InterruptedException {
+
+			frame.setReuseSlots(true);
+
+			for(Slot slot:frame.getSlots()) {
+				relation.set(slot.getRelation());
+				context.write(relation, one);
+			}
+		}
+	}
+
+	/**
+	 * A relation and the number of times it was seen.
+	 */
+	private static class RelationCount {
+		final String relation;
+		final long count;
+
+		RelationCount(String relation, long count) {
+			this.relation = relation;
+			this.count = count;
+		}
+	}
+
+	private static final Comparator<RelationCount> BY_DECREASING_COUNT = new Comparator<RelationCount>() {
+		@Override
+		public int compare(RelationCount first, RelationCount second) {
+			if(first.count != second.count) {
+				return (first.count > second.count) ? -1 : 1;
+			}
+
+			return first.relation.compareTo(second.relation);
+		}
+	};
+
+	/**
+	 * Reads the counted relations and writes them as a dictionary file.
+	 */
+	private static void writeDictionary(FileSystem fs, Path outPath, Configuration conf) throws IOException {
+		List<RelationCount> relationCounts = new ArrayList<RelationCount>();
+		Text relation = new Text();
+		LongWritable count = new LongWritable();
+
+		for(FileStatus status:fs.listStatus(new Path(outPath, COUNTS_DIRECTORY))) {
+			if(!status.getPath().getName().startsWith("part-")) {
+				continue;
+			}
+
+			SequenceFile.Reader reader = new SequenceFile.Reader(fs, status.getPath(), conf);
+			try {
+				while(reader.next(relation, count)) {
+					relationCounts.add(new RelationCount(relation.toString(), count.get()));
+				}
+			} finally {
+				reader.close();
+			}
+		}
+
+		Collections.sort(relationCounts, BY_DECREASING_COUNT);
+
+		List<String> relations = new ArrayList<String>(relationCounts.size());
+		for(RelationCount relationCount:relationCounts) {
+			relations.add(relationCount.relation);
+		}
+
+		FrameDictionary.writeStrings(fs, new Path(outPath, FrameDictionary.RELATIONS_FILE), conf, relations);
+
+		sLogger.info(" - relations: " + relations.size());
+	}
+
+	@Override
+	public int run(String[] args) throws Exception {
+		if (args.length != 3) {
+			System.out.println("Usage tool.dictionary.BuildDictionary [inputPath] [outputPath] [numberOfReducers]");
+			return -1;
+		}
+
+		String inputPath = args[0];
+		String outPath = args[1];
+		int reduceTasks = Integer.parseInt(args[2]);
+
+		sLogger.info("Tool: BuildDictionary");
+		sLogger.info(" - input path: " + inputPath);
+		sLogger.info(" - output path: " + outPath);
+		sLogger.info(" - number of reducers: " + reduceTasks);
+
+		Job job = new Job(getConf(), "Build Dictionary");
+
+		job.setJarByClass(BuildDictionary.class);
+		job.setNumReduceTasks(reduceTasks);
+
+		FileInputFormat.addInputPaths(job, inputPath);
+		FileOutputFormat.setOutputPath(job, new Path(outPath, COUNTS_DIRECTORY));
+
+		if(getConf().get(FrameDictionary.DICTIONARY) != null) {
+			job.setInputFormatClass(IntFrameInputFormat.class);
+		} else {
+			job.setInputFormatClass(SequenceFileInputFormat.class);
+		}
+
+		job.setMapOutputKeyClass(Text.class);
+		job.setMapOutputValueClass(LongWritable.class);
+
+		job.setOutputKeyClass(Text.class);
+		job.setOutputValueClass(LongWritable.class);
+
+		SequenceFileOutputFormat.setCompressOutput(job, false);
+		job.setOutputFormatClass(SequenceFileOutputFormat.class);
+
+		job.setMapperClass(MapClass.class);
+		job.setCombinerClass(LongSumReducer.class);
+		job.setReducerClass(LongSumReducer.class);
+
+		long startTime = System.currentTimeMillis();
+		if(!job.waitForCompletion(true)) {
+			return -1;
+		}
+
+		writeDictionary(FileSystem.get(job.getConfiguration()), new Path(outPath), job.getConfiguration());
+		System.out.println("Job Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+
+		return 0;
+	}
+
+	/**
+	 * Dispatches command-line arguments to the tool via the
+	 * <code>ToolRunner</code>.
+	 */
+	public static void main(String[] args) throws Exception {
+		int res = ToolRunner.run(new BuildDictionary(), args);
+		System.exit(res);
+	}
+}
@@ -0,0 +1,121 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package tool.dictionary;
+
+import io.Frame;
+import io.FrameDictionary;
+import io.IntFrame;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.log4j.Logger;
+
+/**
+ * Turns {@link IntFrame}s written by {@link EncodeFrames} back into frames.
+ */
+public class DecodeFrames extends Configured implements Tool  {
+	private static final Logger sLogger = Logger.getLogger(DecodeFrames.class);
+
+	public static class MapClass extends
+	Mapper<LongWritable, IntFrame, LongWritable, Frame> {
+
+		private static FrameDictionary frameDictionary;
+		private static Frame frame = new Frame();
+
+		@Override
+		public void setup(Context context) throws IOException {
+			System.out.println("Setting up mapper...");
+			frameDictionary = FrameDictionary.read(context.getConfiguration());
+		}
+
+		@Override
+		public void map(LongWritable key, IntFrame intFrame, Context context)
+				throws IOException,
+				InterruptedException {
+
+			frameDictionary.decode(intFrame, frame);
+			context.write(key, frame);
+		}
+	}
+
+	@Override
+	public int run(String[] args) throws Exception {
+		if (args.length != 3) {
+			System.out.println("Usage tool.dictionary.DecodeFrames [inputPath] [outputPath] [dictionaryPath]");
+			return -1;
+		}
+
+		String inputPath = args[0];
+		String outPath = args[1];
+		String dictionaryPath = args[2];
+
+		sLogger.info("Tool: DecodeFrames");
+		sLogger.info(" - input path: " + inputPath);
+		sLogger.info(" - output path: " + outPath);
+		sLogger.info(" - dictionary path: " + dictionaryPath);
+
+		Job job = new Job(getConf(), "Decode Frames");
+
+		job.getConfiguration().set(FrameDictionary.DICTIONARY, dictionaryPath);
+
+		job.setJarByClass(DecodeFrames.class);
+		job.setNumReduceTasks(0);
+
+		FileInputFormat.addInputPaths(job, inputPath);
+		FileOutputFormat.setOutputPath(job, new Path(outPath));
+
+		job.setInputFormatClass(SequenceFileInputFormat.class);
+
+		job.setOutputKeyClass(LongWritable.class);
+		job.setOutputValueClass(Frame.class);
+
+		SequenceFileOutputFormat.setCompressOutput(job, false);
+		job.setOutputFormatClass(SequenceFileOutputFormat.class);
+
+		job.setMapperClass(MapClass.class);
+
+		long startTime = System.currentTimeMillis();
+		job.waitForCompletion(true);
+		System.out.println("Job Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+
+		return 0;
+	}
+
+	/**
+	 * Dispatches command-line arguments to the tool via the
+	 * <code>ToolRunner</code>.
+	 */
+	public static void main(String[] args) throws Exception {
+		int res = ToolRunner.run(new DecodeFrames(), args);
+		System.exit(res);
+	}
+}
@@ -0,0 +1,121 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package tool.export;
+
+import io.Frame;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.SequenceFile;
+
+import tool.statistics.FrequencyEstimate;
+
+/**
+ * Reads the frames and scores written by the tools of the tool.statistics
+ * package from a file or from all part files of a directory, one record at a
+ * time. The slots of a frame are reused for the next record.
+ * <p>
+ * Besides scores, files may hold the {@link FrequencyEstimate}s of
+ * tool.statistics.ApproximateFrequencyStatistics, whose estimated counts
+ * are read as scores.
+ */
+public class FrameStatisticsReader implements Closeable {
+	private final FileSystem fs;
+	private final Configuration conf;
+	private final List<Path> paths = new ArrayList<Path>();
+	private int pathIndex;
+	private SequenceFile.Reader reader;
+	private boolean hasEstimates;
+	private final FrequencyEstimate estimate = new FrequencyEstimate();
+
+	public FrameStatisticsReader(Path path, Configuration conf) throws IOException {
+		this.fs = path.getFileSystem(conf);
+		this.conf = conf;
+
+		if(fs.getFileStatus(path).isDir()) {
+			for(FileStatus status:fs.listStatus(path)) {
+				String name = status.getPath().getName();
+
+				if(!status.isDir() && !name.startsWith("_") && !name.startsWith(".")) {
+					paths.add(status.getPath());
+				}
+			}
+		} else {
+			paths.add(path);
+		}
+	}
+
+	/**
+	 * Reads the next frame and its score. Returns false when all files have
+	 * been read.
+	 */
+	public boolean next(Frame frame, DoubleWritable score) throws IOException {
+		frame.setReuseSlots(true);
+
+		while(true) {
+			if(reader != null && hasEstimates && reader.next(frame, estimate)) {
+				score.set(estimate.getCount());
+				return true;
+			}
+
+			if(reader != null && !hasEstimates && reader.next(frame, score)) {
+				return true;
+			}
+
+			if(reader != null) {
+				reader.close();
+				reader = null;
+			}
+
+			if(pathIndex == paths.size()) {
+				return false;
+			}
+
+			Path path = paths.get(pathIndex++);
+			reader = new SequenceFile.Reader(fs, path, conf);
+
+			hasEstimates = FrequencyEstimate.class.equals(reader.getValueClass());
+
+			if(!Frame.class.equals(reader.getKeyClass()) || !(hasEstimates || DoubleWritable.class.equals(reader.getValueClass()))) {
+				String message = "Expected frames and scores or estimates in " + path + " but found " + reader.getKeyClassName() + " and " + reader.getValueClassName();
+				reader.close();
+				reader = null;
+				throw new IOException(message);
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if(reader != null) {
+			reader.close();
+			reader = null;
+		}
+	}
+}
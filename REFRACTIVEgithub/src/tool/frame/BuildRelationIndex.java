@@ -0,0 +1,130 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package tool.frame;
+
+import io.Frame;
+import io.FrameDictionary;
+import io.RelationIndex;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.NullOutputFormat;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.log4j.Logger;
+
+/**
+ * Builds a {@link RelationIndex} for every sequence file of frames in the
+ * input paths, with one map task per file. The indexes are written next to
+ * the frame files, where the tools given -D indexed=true look for them.
+ */
+public class BuildRelationIndex extends Configured implements Tool  {
+	private static final Logger sLogger = Logger.getLogger(BuildRelationIndex.class);
+
+	/**
+	 * Gives every frame file to a single map task.
+	 */
+	public static class FrameFileInputFormat extends SequenceFileInputFormat<LongWritable, Frame> {
+		@Override
+		protected boolean isSplitable(JobContext context, Path file) {
+			return false;
+		}
+	}
+
+	public static class MapClass extends
+	Mapper<LongWritable, Frame, NullWritable, NullWritable> {
+
+		/**
+		 * Indexes the file of the split instead of iterating over its
+		 * records, as the index needs the position of every record.
+		 */
+		@Override
+		public void run(Context context) throws IOException {
+			System.out.println("Setting up mapper...");
+
+			Path path = ((FileSplit)context.getInputSplit()).getPath();
+			long frameCount = RelationIndex.build(path.getFileSystem(context.getConfiguration()), path, context.getConfiguration());
+
+			context.getCounter("relation index", "files").increment(1);
+			context.getCounter("relation index", "frames").increment(frameCount);
+		}
+	}
+
+	@Override
+	public int run(String[] args) throws Exception {
+		if (args.length != 1) {
+			System.out.println("Usage tool.frame.BuildRelationIndex [inputPath]");
+			return -1;
+		}
+
+		String inputPath = args[0];
+
+		// The index is built by reading the frames of a file directly,
+		// so the file cannot hold encoded frames
+		if(getConf().get(FrameDictionary.DICTIONARY) != null) {
+			System.out.println("Relation indexes are built from frames; decode the input with tool.dictionary.DecodeFrames first");
+			return -1;
+		}
+
+		sLogger.info("Tool: Build Relation Index");
+		sLogger.info(" - input path: " + inputPath);
+
+		Job job = new Job(getConf(), "Build Relation Index");
+
+		job.setJarByClass(BuildRelationIndex.class);
+		job.setNumReduceTasks(0);
+
+		FileInputFormat.addInputPaths(job, inputPath);
+
+		job.setInputFormatClass(FrameFileInputFormat.class);
+		job.setOutputFormatClass(NullOutputFormat.class);
+
+		job.setOutputKeyClass(NullWritable.class);
+		job.setOutputValueClass(NullWritable.class);
+
+		job.setMapperClass(MapClass.class);
+
+		long startTime = System.currentTimeMillis();
+		job.waitForCompletion(true);
+		System.out.println("Job Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+
+		return 0;
+	}
+
+	/**
+	 * Dispatches command-line arguments to the tool via the
+	 * <code>ToolRunner</code>.
+	 */
+	public static void main(String[] args) throws Exception {
+		int res = ToolRunner.run(new BuildRelationIndex(), args);
+		System.exit(res);
+	}
+}
@@ -0,0 +1,120 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package tool.frame;
+
+import io.ColumnarFrameOutputFormat;
+import io.Frame;
+import io.FrameDictionary;
+import io.IntFrameInputFormat;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.log4j.Logger;
+
+/**
+ * Rewrites sequence files of frames in the columnar format read by
+ * {@link io.ColumnarFrameInputFormat}. Frames encoded with a dictionary are
+ * decoded when it is given with -D dictionary=path.
+ */
+public class ColumnarFrameConverter extends Configured implements Tool  {
+	private static final Logger sLogger = Logger.getLogger(ColumnarFrameConverter.class);
+
+	public static class MapClass extends
+	Mapper<LongWritable, Frame, LongWritable, Frame> {
+
+		@Override
+		public void setup(Context context) {
+			System.out.println("Setting up mapper...");
+		}
+
+		@Override
+		public void map(LongWritable key, Frame frame, Context context)
+				throws IOException,
+				InterruptedException {
+
+			frame.setReuseSlots(true);
+
+			context.getCounter("columnar frames", "count").increment(1);
+			context.write(key, frame);
+		}
+	}
+
+	@Override
+	public int run(String[] args) throws Exception {
+		if (args.length != 2) {
+			System.out.println("Usage tool.frame.ColumnarFrameConverter [inputPath] [outputPath]");
+			return -1;
+		}
+
+		String inputPath = args[0];
+		String outPath = args[1];
+
+		sLogger.info("Tool: Columnar Frame Converter");
+		sLogger.info(" - input path: " + inputPath);
+		sLogger.info(" - output path: " + outPath);
+
+		Job job = new Job(getConf(), "Columnar Frame Converter");
+
+		job.setJarByClass(ColumnarFrameConverter.class);
+		job.setNumReduceTasks(0);
+
+		FileInputFormat.addInputPaths(job, inputPath);
+		FileOutputFormat.setOutputPath(job, new Path(outPath));
+
+		if(getConf().get(FrameDictionary.DICTIONARY) != null) {
+			job.setInputFormatClass(IntFrameInputFormat.class);
+		} else {
+			job.setInputFormatClass(SequenceFileInputFormat.class);
+		}
+
+		job.setOutputKeyClass(LongWritable.class);
+		job.setOutputValueClass(Frame.class);
+
+		job.setOutputFormatClass(ColumnarFrameOutputFormat.class);
+
+		job.setMapperClass(MapClass.class);
+
+		long startTime = System.currentTimeMillis();
+		job.waitForCompletion(true);
+		System.out.println("Job Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+
+		return 0;
+	}
+
+	/**
+	 * Dispatches command-line arguments to the tool via the
+	 * <code>ToolRunner</code>.
+	 */
+	public static void main(String[] args) throws Exception {
+		int res = ToolRunner.run(new ColumnarFrameConverter(), args);
+		System.exit(res);
+	}
+}
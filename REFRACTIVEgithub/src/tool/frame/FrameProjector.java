@@ -1,125 +1,180 @@
-/**
- * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
- * Copyright © 2013 Peter Exner
- * 
- * This file is part of Refractive.
- *
- * Refractive is free software: you can redistribute it and/or modify
- * it under the terms of the GNU General Public License as published by
- * the Free Software Foundation, either version 3 of the License, or
- * (at your option) any later version.
- *
- * Refractive is distributed in the hope that it will be useful,
- * but WITHOUT ANY WARRANTY; without even the implied warranty of
- * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
- * GNU General Public License for more details.
- *
- * You should have received a copy of the GNU General Public License
- * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
- */
-
-package tool.frame;
-
-import io.Frame;
-import java.io.IOException;
-import org.apache.hadoop.conf.Configured;
-import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.LongWritable;
-import org.apache.hadoop.mapreduce.Job;
-import org.apache.hadoop.mapreduce.Mapper;
-import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
-import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
-import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
-import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
-import org.apache.hadoop.util.Tool;
-import org.apache.hadoop.util.ToolRunner;
-import org.apache.log4j.Logger;
-
-import query.ProjectionQuery;
-
-
-public class FrameProjector extends Configured implements Tool  {
-	private static final Logger sLogger = Logger.getLogger(FrameProjector.class);
-
-	public static class MapClass extends
-	Mapper<LongWritable, Frame, LongWritable, Frame> {
-
-		private static ProjectionQuery projectionQuery;
-		
-		@Override
-		public void setup(Context context) {
-			System.out.println("Setting up mapper...");
-			projectionQuery = new ProjectionQuery(context.getConfiguration().get("projection"));
-		}
-
-		@Override
-		public void map(LongWritable key, Frame frame, Context context)
-				throws IOException,
-				InterruptedException {
-			
-				Frame projectedFrame = projectionQuery.parseQuery(frame);
-				if(projectedFrame != null) {
-					context.getCounter("frame projection", "count").increment(1);
-					context.write(key, projectedFrame);	
-				}
-			}
-		}
-
-
-	@Override
-	public int run(String[] args) throws Exception {
-		if (args.length != 4) {
-			System.out.println("Usage tool.frame.FrameProjector [inputPath] [outputPath] [numberOfReducers] [projection]");
-			return -1;
-		}
-
-		String inputPath = args[0];
-		String outPath = args[1];
-		int reduceTasks = Integer.parseInt(args[2]);
-		String projection = args[3];
-		
-		sLogger.info("Tool: Frame Projector");
-		sLogger.info(" - input path: " + inputPath);
-		sLogger.info(" - output path: " + outPath);
-		sLogger.info(" - number of reducers: " + reduceTasks);
-		sLogger.info(" - projection: " + projection);
-
-		Job job = new Job(getConf(), "Frame Projector");
-
-		job.getConfiguration().set("projection", projection);
-
-		job.setJarByClass(FrameProjector.class);
-		job.setNumReduceTasks(reduceTasks);
-
-		FileInputFormat.addInputPaths(job, inputPath);
-		FileOutputFormat.setOutputPath(job, new Path(outPath));
-
-		job.setInputFormatClass(SequenceFileInputFormat.class);
-
-		job.setMapOutputKeyClass(LongWritable.class);
-		job.setMapOutputValueClass(Frame.class);
-
-		job.setOutputKeyClass(LongWritable.class);
-		job.setOutputValueClass(Frame.class);
-
-		SequenceFileOutputFormat.setCompressOutput(job, false);
-		job.setOutputFormatClass(SequenceFileOutputFormat.class);
-		
-		job.setMapperClass(MapClass.class);
-		
-		long startTime = System.currentTimeMillis();
-		job.waitForCompletion(true);
-		System.out.println("Job Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
-
-		return 0;
-	}
-
-	/**
-	 * Dispatches command-line arguments to the tool via the
-	 * <code>ToolRunner</code>.
-	 */
-	public static void main(String[] args) throws Exception {
-		int res = ToolRunner.run(new FrameProjector(), args);
-		System.exit(res);
-	}
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package tool.frame;
+
+import io.ColumnarFrameInputFormat;
+import io.Frame;
+import io.FrameDictionary;
+import io.IntFrameInputFormat;
+import io.RelationIndexInputFormat;
+import java.io.IOException;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.LazyOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.log4j.Logger;
+
+import query.ProjectionQuery;
+import query.ProjectionQuerySet;
+
+
+public class FrameProjector extends Configured implements Tool  {
+	private static final Logger sLogger = Logger.getLogger(FrameProjector.class);
+
+	public static class MapClass extends
+	Mapper<LongWritable, Frame, LongWritable, Frame> {
+
+		private static ProjectionQuerySet projectionQuerySet;
+		private static ProjectionQuery[] projectionQueries;
+		private MultipleOutputs<LongWritable, Frame> multipleOutputs;
+		
+		@Override
+		public void setup(Context context) {
+			System.out.println("Setting up mapper...");
+			projectionQuerySet = ProjectionQuerySet.read(context.getConfiguration(), "projection");
+			projectionQueries = projectionQuerySet.compile(0);
+			multipleOutputs = new MultipleOutputs<LongWritable, Frame>(context);
+		}
+
+		@Override
+		public void cleanup(Context context) throws IOException, InterruptedException {
+			multipleOutputs.close();
+		}
+
+		@Override
+		public void map(LongWritable key, Frame frame, Context context)
+				throws IOException,
+				InterruptedException {
+			
+				// The record reader reads every record into this frame, so its
+				// slots can be reused as long as none is kept past this call
+				frame.setReuseSlots(true);
+
+				for(int i=0; i<projectionQueries.length; i++) {
+					Frame projectedFrame = projectionQueries[i].parseQuery(frame);
+					if(projectedFrame != null) {
+						context.getCounter("frame projection", "count").increment(1);
+						
+						if(projectionQuerySet.isNamed()) {
+							multipleOutputs.write(projectionQuerySet.getName(i), key, projectedFrame);
+						} else {
+							context.write(key, projectedFrame);
+						}
+					}
+				}
+			}
+		}
+
+
+	@Override
+	public int run(String[] args) throws Exception {
+		if (args.length != 4) {
+			System.out.println("Usage tool.frame.FrameProjector [inputPath] [outputPath] [numberOfReducers] [projection|@projectionFile]");
+			return -1;
+		}
+
+		String inputPath = args[0];
+		String outPath = args[1];
+		int reduceTasks = Integer.parseInt(args[2]);
+		String projection = args[3];
+		ProjectionQuerySet projectionQuerySet = ProjectionQuerySet.isFile(projection) ? ProjectionQuerySet.read(projection, 1, getConf()) : ProjectionQuerySet.of(projection);
+		
+		// Named outputs are written by the mappers, which leaves nothing
+		// for reducers to do
+		if(projectionQuerySet.isNamed()) {
+			reduceTasks = 0;
+		}
+		
+		sLogger.info("Tool: Frame Projector");
+		sLogger.info(" - input path: " + inputPath);
+		sLogger.info(" - output path: " + outPath);
+		sLogger.info(" - number of reducers: " + reduceTasks);
+		sLogger.info(" - projection: " + projectionQuerySet);
+
+		Job job = new Job(getConf(), "Frame Projector");
+
+		projectionQuerySet.write(job.getConfiguration(), "projection");
+
+		job.setJarByClass(FrameProjector.class);
+		job.setNumReduceTasks(reduceTasks);
+
+		FileInputFormat.addInputPaths(job, inputPath);
+		FileOutputFormat.setOutputPath(job, new Path(outPath));
+
+		if(getConf().getBoolean("columnar", false)) {
+			ColumnarFrameInputFormat.setRelations(job.getConfiguration(), projectionQuerySet.getRelations());
+			job.setInputFormatClass(ColumnarFrameInputFormat.class);
+		} else if(getConf().getBoolean("indexed", false)) {
+			for(int i=0; i<projectionQuerySet.size(); i++) {
+				RelationIndexInputFormat.addRelations(job.getConfiguration(), new ProjectionQuery(projectionQuerySet.getProjection(i, 0)).getRelations());
+			}
+			job.setInputFormatClass(RelationIndexInputFormat.class);
+		} else if(getConf().get(FrameDictionary.DICTIONARY) != null) {
+			job.setInputFormatClass(IntFrameInputFormat.class);
+		} else {
+			job.setInputFormatClass(SequenceFileInputFormat.class);
+		}
+
+		job.setMapOutputKeyClass(LongWritable.class);
+		job.setMapOutputValueClass(Frame.class);
+
+		job.setOutputKeyClass(LongWritable.class);
+		job.setOutputValueClass(Frame.class);
+
+		SequenceFileOutputFormat.setCompressOutput(job, false);
+		
+		if(projectionQuerySet.isNamed()) {
+			LazyOutputFormat.setOutputFormatClass(job, SequenceFileOutputFormat.class);
+
+			for(int i=0; i<projectionQuerySet.size(); i++) {
+				MultipleOutputs.addNamedOutput(job, projectionQuerySet.getName(i), SequenceFileOutputFormat.class, LongWritable.class, Frame.class);
+			}
+		} else {
+			job.setOutputFormatClass(SequenceFileOutputFormat.class);
+		}
+		
+		job.setMapperClass(MapClass.class);
+		
+		long startTime = System.currentTimeMillis();
+		job.waitForCompletion(true);
+		System.out.println("Job Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+
+		return 0;
+	}
+
+	/**
+	 * Dispatches command-line arguments to the tool via the
+	 * <code>ToolRunner</code>.
+	 */
+	public static void main(String[] args) throws Exception {
+		int res = ToolRunner.run(new FrameProjector(), args);
+		System.exit(res);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,333 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package tool.frame;
+
+import id.AtomicUniqueIdGenerator;
+import io.Frame;
+import io.conll.CoNLLDocument;
+import io.conll.CoNLLParser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.log4j.Logger;
+
+import extract.ExtractionStatistics;
+import extract.FrameExtractor;
+import extract.FrameExtractorConfiguration;
+
+/**
+ * Runs the frame extraction of {@link CoNLLFrameExtractor} on a single machine,
+ * spreading the documents over a bounded pool of worker threads. Input and
+ * output are SequenceFiles in the same format as the MapReduce job, with one
+ * output file per worker. Documents that are malformed or over the budget
+ * are written to a quarantine file of the worker.
+ */
+public class LocalFrameExtractor extends Configured implements Tool  {
+	private static final Logger sLogger = Logger.getLogger(LocalFrameExtractor.class);
+	private static final int QUEUE_CAPACITY_PER_THREAD = 16;
+	private static final InputDocument END_OF_INPUT = new InputDocument(-1, new Text());
+
+	private static class InputDocument {
+		private final int id;
+		private final Text text;
+
+		public InputDocument(int id, Text text) {
+			this.id = id;
+			this.text = text;
+		}
+	}
+
+	private static class Worker implements Callable<Long> {
+		private FrameExtractor frameExtractor;
+		private BlockingQueue<InputDocument> queue;
+		private Map<Integer, SequenceFile.Writer> writers;
+		private ExtractionStatistics statistics;
+		private Map<String, Long> quarantined;
+		private FileSystem fs;
+		private Configuration conf;
+		private Path quarantinePath;
+		private SequenceFile.Writer quarantineWriter;
+
+		public Worker(FrameExtractor frameExtractor, BlockingQueue<InputDocument> queue, Map<Integer, SequenceFile.Writer> writers, FileSystem fs, Configuration conf, Path quarantinePath) {
+			this.frameExtractor = frameExtractor;
+			this.queue = queue;
+			this.writers = writers;
+			this.statistics = new ExtractionStatistics();
+			this.quarantined = new TreeMap<String, Long>();
+			this.fs = fs;
+			this.conf = conf;
+			this.quarantinePath = quarantinePath;
+		}
+
+		public ExtractionStatistics getStatistics() {
+			return statistics;
+		}
+
+		/**
+		 * Returns the number of documents put in quarantine by reason.
+		 */
+		public Map<String, Long> getQuarantined() {
+			return quarantined;
+		}
+
+		@Override
+		public Long call() throws Exception {
+			CoNLLParser coNLLParser = new CoNLLParser();
+			LongWritable frameId = new LongWritable();
+			long frameCount = 0;
+
+			try {
+				InputDocument input;
+				while ((input = queue.take()) != END_OF_INPUT) {
+					List<Frame> frames;
+					try {
+						CoNLLDocument document = coNLLParser.parse(input.text);
+						frames = frameExtractor.extractFrames(document, statistics);
+					} catch (Exception e) {
+						quarantine(input, e);
+						continue;
+					}
+
+					for(Frame frame:frames) {
+						frameId.set(frame.getFrameId());
+						writers.get(frame.getHeight()).append(frameId, frame);
+					}
+					frameCount += frames.size();
+				}
+			} finally {
+				for(SequenceFile.Writer writer:writers.values()) {
+					writer.close();
+				}
+
+				if(quarantineWriter != null) {
+					quarantineWriter.close();
+				}
+			}
+
+			return frameCount;
+		}
+
+		private void quarantine(InputDocument input, Exception e) throws IOException {
+			String reason = CoNLLFrameExtractor.getQuarantineReason(e);
+			if(reason.equals("error")) {
+				e.printStackTrace();
+			}
+
+			Long count = quarantined.get(reason);
+			quarantined.put(reason, count == null ? 1 : count + 1);
+
+			// Created on first use, so that a clean run leaves no quarantine files
+			if(quarantineWriter == null) {
+				quarantineWriter = SequenceFile.createWriter(fs, conf, quarantinePath, IntWritable.class, Text.class);
+			}
+			quarantineWriter.append(new IntWritable(input.id), input.text);
+		}
+	}
+
+	@Override
+	public int run(String[] args) throws Exception {
+		if (args.length != 5 && args.length != 6) {
+			System.out.println("Usage tool.frame.LocalFrameExtractor [inputPath] [outputPath] [numberOfThreads] [startId] [endId] [frameHeights]");
+			return -1;
+		}
+
+		String inputPath = args[0];
+		String outPath = args[1];
+		int threads = Integer.parseInt(args[2]);
+		int startId = Integer.parseInt(args[3]);
+		int endId = Integer.parseInt(args[4]);
+		String frameHeights = args.length == 6 ? args[5] : "2";
+
+		if(threads <= 0) {
+			threads = Runtime.getRuntime().availableProcessors();
+		}
+
+		sLogger.info("Tool: Local CoNLL Frame Extractor");
+		sLogger.info(" - input path: " + inputPath);
+		sLogger.info(" - output path: " + outPath);
+		sLogger.info(" - number of threads: " + threads);
+		sLogger.info(" - starting document id: " + startId);
+		sLogger.info(" - ending document id: " + endId);
+		sLogger.info(" - frame heights: " + frameHeights);
+
+		Configuration conf = getConf();
+		conf.set("frameHeights", frameHeights);
+		FrameExtractorConfiguration configuration = CoNLLFrameExtractor.createConfiguration(conf);
+		int[] heights = configuration.getFrameHeights();
+
+		FileSystem fs = FileSystem.get(conf);
+
+		Path outputPath = new Path(outPath);
+		if(fs.exists(outputPath)) {
+			System.out.println("Output path " + outPath + " already exists");
+			return -1;
+		}
+		fs.mkdirs(outputPath);
+
+		sLogger.info(" - max document tokens: " + configuration.getMaxDocumentTokens());
+		sLogger.info(" - max extraction time: " + configuration.getMaxExtractionTime() + " ms");
+		sLogger.info(" - max sentence frames: " + configuration.getMaxSentenceFrames());
+
+		FrameExtractor frameExtractor = new FrameExtractor(new AtomicUniqueIdGenerator(), configuration);
+
+		long startTime = System.currentTimeMillis();
+
+		BlockingQueue<InputDocument> queue = new ArrayBlockingQueue<InputDocument>(threads * QUEUE_CAPACITY_PER_THREAD);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Worker> workers = new ArrayList<Worker>();
+		List<Future<Long>> results = new ArrayList<Future<Long>>();
+
+		try {
+			for(int i=0; i<threads; i++) {
+				// Same file names as the MapReduce job, which uses named outputs for several heights
+				Map<Integer, SequenceFile.Writer> writers = new HashMap<Integer, SequenceFile.Writer>();
+				for(int height:heights) {
+					String name = heights.length > 1 ? CoNLLFrameExtractor.getHeightOutputName(height) : "part";
+					Path partPath = new Path(outputPath, String.format("%s-r-%05d", name, i));
+					writers.put(height, SequenceFile.createWriter(fs, conf, partPath, LongWritable.class, Frame.class));
+				}
+				Path quarantinePath = new Path(outputPath, String.format("%s-r-%05d", CoNLLFrameExtractor.QUARANTINE_OUTPUT_NAME, i));
+				Worker worker = new Worker(frameExtractor, queue, writers, fs, conf, quarantinePath);
+				workers.add(worker);
+				results.add(executor.submit(worker));
+			}
+
+			long documentCount = 0;
+			for(Path inputFile:listInputFiles(fs, inputPath)) {
+				SequenceFile.Reader reader = new SequenceFile.Reader(fs, inputFile, conf);
+				try {
+					IntWritable key = new IntWritable();
+					Text text = new Text();
+
+					while (reader.next(key, text)) {
+						if(key.get() < startId || key.get() > endId) {
+							continue;
+						}
+
+						enqueue(queue, new InputDocument(key.get(), text), results);
+						text = new Text();
+						documentCount++;
+					}
+				} finally {
+					reader.close();
+				}
+			}
+
+			for(int i=0; i<threads; i++) {
+				enqueue(queue, END_OF_INPUT, results);
+			}
+
+			long frameCount = 0;
+			ExtractionStatistics statistics = new ExtractionStatistics();
+			Map<String, Long> quarantined = new TreeMap<String, Long>();
+			for(int i=0; i<threads; i++) {
+				frameCount += results.get(i).get();
+				statistics.add(workers.get(i).getStatistics());
+
+				for(Map.Entry<String, Long> entry:workers.get(i).getQuarantined().entrySet()) {
+					Long count = quarantined.get(entry.getKey());
+					quarantined.put(entry.getKey(), count == null ? entry.getValue() : count + entry.getValue());
+				}
+			}
+
+			sLogger.info(" - documents: " + documentCount);
+			sLogger.info(" - frames: " + frameCount);
+			sLogger.info(" - named entities: " + statistics.getNamedEntities() + " (" + statistics.getFrameNamedEntities() + " in frames)");
+			sLogger.info(" - predicates: " + statistics.getPredicates() + " (" + statistics.getFramePredicates() + " in frames)");
+			sLogger.info(" - quarantined documents: " + quarantined);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		System.out.println("Job Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+
+		return 0;
+	}
+
+	private static void enqueue(BlockingQueue<InputDocument> queue, InputDocument input, List<Future<Long>> results) throws Exception {
+		while (!queue.offer(input, 1, TimeUnit.SECONDS)) {
+			for(Future<Long> result:results) {
+				if(result.isDone()) {
+					// Rethrows the exception of a worker that failed
+					result.get();
+				}
+			}
+		}
+	}
+
+	private static List<Path> listInputFiles(FileSystem fs, String inputPath) throws IOException {
+		List<Path> inputFiles = new ArrayList<Path>();
+
+		for(String path:inputPath.split(",")) {
+			FileStatus[] statuses = fs.globStatus(new Path(path));
+			if(statuses == null) {
+				throw new IOException("Input path does not exist: " + path);
+			}
+
+			for(FileStatus status:statuses) {
+				if(status.isDir()) {
+					for(FileStatus child:fs.listStatus(status.getPath())) {
+						String name = child.getPath().getName();
+						if(!child.isDir() && !name.startsWith("_") && !name.startsWith(".")) {
+							inputFiles.add(child.getPath());
+						}
+					}
+				} else {
+					inputFiles.add(status.getPath());
+				}
+			}
+		}
+
+		return inputFiles;
+	}
+
+	/**
+	 * Dispatches command-line arguments to the tool via the
+	 * <code>ToolRunner</code>.
+	 */
+	public static void main(String[] args) throws Exception {
+		int res = ToolRunner.run(new LocalFrameExtractor(), args);
+		System.exit(res);
+	}
+}
@@ -0,0 +1,277 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package tool.statistics;
+
+import io.ColumnarFrameInputFormat;
+import io.Frame;
+import io.FrameDictionary;
+import io.FrameKey;
+import io.IntFrameInputFormat;
+import io.RelationIndexInputFormat;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.LazyOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.log4j.Logger;
+
+import query.ProjectionQuery;
+import query.ProjectionQuerySet;
+
+/**
+ * Estimates the counts of the most frequent projected frames, and the number
+ * of distinct projected frames, without counting every projected frame.
+ * Every mapper counts the projections of each query in a {@link FrameSketch}
+ * and a single reducer merges the sketches of a query. As in
+ * {@link FrequencyStatistics}, projections are counted by their slot
+ * values, and each is written as the first frame counted with it.
+ * <p>
+ * The output holds the frequent frames of each query with a
+ * {@link FrequencyEstimate} of their counts, and the number of distinct
+ * frames of each query is given by the "distinct frames" counters.
+ */
+public class ApproximateFrequencyStatistics extends Configured implements Tool  {
+	private static final Logger sLogger = Logger.getLogger(ApproximateFrequencyStatistics.class);
+
+	/**
+	 * The setting holding the number of frequent frames reported per query.
+	 */
+	public static final String TOP_FRAMES = "approximate.top.frames";
+	public static final int DEFAULT_TOP_FRAMES = 1000;
+
+	/**
+	 * The settings holding the number of counters per row and the number of
+	 * rows of the count-min sketches. The estimated count of a frame exceeds
+	 * its count by at most e / width of the number of projected frames, with
+	 * a probability of 1 - exp(-depth).
+	 */
+	public static final String SKETCH_WIDTH = "approximate.sketch.width";
+	public static final int DEFAULT_SKETCH_WIDTH = 8192;
+	public static final String SKETCH_DEPTH = "approximate.sketch.depth";
+	public static final int DEFAULT_SKETCH_DEPTH = 4;
+
+	/**
+	 * The setting holding the base-2 logarithm of the number of HyperLogLog
+	 * registers used to estimate the number of distinct frames.
+	 */
+	public static final String DISTINCT_PRECISION = "approximate.distinct.precision";
+	public static final int DEFAULT_DISTINCT_PRECISION = 14;
+
+	private static FrameSketch newSketch(Configuration conf) {
+		return new FrameSketch(conf.getInt(SKETCH_WIDTH, DEFAULT_SKETCH_WIDTH),
+				conf.getInt(SKETCH_DEPTH, DEFAULT_SKETCH_DEPTH),
+				conf.getInt(TOP_FRAMES, DEFAULT_TOP_FRAMES),
+				conf.getInt(DISTINCT_PRECISION, DEFAULT_DISTINCT_PRECISION));
+	}
+
+	/**
+	 * Counts the projections of each query in a sketch, written out once at
+	 * the end of the task.
+	 */
+	public static class MapClass extends
+	Mapper<LongWritable, Frame, IntWritable, FrameSketch> {
+
+		private static ProjectionQuery[] projectionQueries;
+		private static FrameKey frameKey = new FrameKey();
+		private static IntWritable query = new IntWritable();
+		private FrameSketch[] sketches;
+
+		@Override
+		public void setup(Context context) {
+			System.out.println("Setting up mapper...");
+			projectionQueries = ProjectionQuerySet.read(context.getConfiguration(), "query").compile(0);
+			sketches = new FrameSketch[projectionQueries.length];
+
+			for(int i=0; i<sketches.length; i++) {
+				sketches[i] = newSketch(context.getConfiguration());
+			}
+		}
+
+		@Override
+		public void map(LongWritable key, Frame frame, Context context)
+				throws IOException,
+				InterruptedException {
+
+			frame.setReuseSlots(true);
+
+			for(int i=0; i<projectionQueries.length; i++) {
+				Frame projectedFrame = projectionQueries[i].parseQuery(frame);
+				if(projectedFrame != null) {
+					frameKey.setSlotValues(projectedFrame);
+					sketches[i].add(frameKey, projectedFrame);
+				}
+			}
+		}
+
+		@Override
+		public void cleanup(Context context) throws IOException, InterruptedException {
+			for(int i=0; i<sketches.length; i++) {
+				if(sketches[i].getTotal() > 0) {
+					query.set(i);
+					context.write(query, sketches[i]);
+				}
+			}
+		}
+	}
+
+	public static class ReduceClass extends
+	Reducer<IntWritable, FrameSketch, Frame, FrequencyEstimate> {
+		private static Frame frame = new Frame();
+		private static ProjectionQuerySet projectionQuerySet;
+		private MultipleOutputs<Frame, FrequencyEstimate> multipleOutputs;
+
+		@Override
+		public void setup(Context context) {
+			System.out.println("Setting up reducer...");
+			projectionQuerySet = ProjectionQuerySet.read(context.getConfiguration(), "query");
+			multipleOutputs = new MultipleOutputs<Frame, FrequencyEstimate>(context);
+			frame.setReuseSlots(true);
+		}
+
+		@Override
+		public void cleanup(Context context) throws IOException, InterruptedException {
+			multipleOutputs.close();
+		}
+
+		@Override
+		public void reduce(IntWritable query, Iterable<FrameSketch> sketches, Context context)
+				throws IOException,
+				InterruptedException {
+			FrameSketch sketch = newSketch(context.getConfiguration());
+
+			for(FrameSketch partialSketch:sketches) {
+				sketch.add(partialSketch);
+			}
+
+			String name = projectionQuerySet.isNamed() ? projectionQuerySet.getName(query.get()) : "projection";
+			long distinctCount = sketch.getDistinctCount();
+
+			sLogger.info(name + ": " + sketch.getTotal() + " frames, about " + distinctCount + " distinct");
+			context.getCounter("distinct frames", name).increment(distinctCount);
+
+			for(Map.Entry<FrameKey, FrequencyEstimate> entry:sketch.getHeavyHitters()) {
+				sketch.getFrame(entry.getKey(), frame);
+				context.getCounter("frame projection", "count").increment(1);
+
+				if(projectionQuerySet.isNamed()) {
+					multipleOutputs.write(name, frame, entry.getValue());
+				} else {
+					context.write(frame, entry.getValue());
+				}
+			}
+		}
+	}
+
+
+	@Override
+	public int run(String[] args) throws Exception {
+		if (args.length != 3) {
+			System.out.println("Usage tool.statistics.ApproximateFrequencyStatistics [inputPath] [outputPath] [projection|@projectionFile]");
+			return -1;
+		}
+
+		String inputPath = args[0];
+		String outPath = args[1];
+		String query = args[2];
+		ProjectionQuerySet projectionQuerySet = ProjectionQuerySet.isFile(query) ? ProjectionQuerySet.read(query, 1, getConf()) : ProjectionQuerySet.of(query);
+
+		sLogger.info("Tool: ApproximateFrequencyStatistics");
+		sLogger.info(" - input path: " + inputPath);
+		sLogger.info(" - output path: " + outPath);
+		sLogger.info(" - projection: " + projectionQuerySet);
+		sLogger.info(" - top frames: " + getConf().getInt(TOP_FRAMES, DEFAULT_TOP_FRAMES));
+
+		Job job = new Job(getConf(), "Approximate Frequency Statistics");
+
+		projectionQuerySet.write(job.getConfiguration(), "query");
+
+		job.setJarByClass(ApproximateFrequencyStatistics.class);
+		job.setNumReduceTasks(1);
+
+		FileInputFormat.addInputPaths(job, inputPath);
+		FileOutputFormat.setOutputPath(job, new Path(outPath));
+
+		if(getConf().getBoolean("columnar", false)) {
+			ColumnarFrameInputFormat.setRelations(job.getConfiguration(), projectionQuerySet.getRelations());
+			job.setInputFormatClass(ColumnarFrameInputFormat.class);
+		} else if(getConf().getBoolean("indexed", false)) {
+			for(int i=0; i<projectionQuerySet.size(); i++) {
+				RelationIndexInputFormat.addRelations(job.getConfiguration(), new ProjectionQuery(projectionQuerySet.getProjection(i, 0)).getRelations());
+			}
+			job.setInputFormatClass(RelationIndexInputFormat.class);
+		} else if(getConf().get(FrameDictionary.DICTIONARY) != null) {
+			job.setInputFormatClass(IntFrameInputFormat.class);
+		} else {
+			job.setInputFormatClass(SequenceFileInputFormat.class);
+		}
+
+		job.setMapOutputKeyClass(IntWritable.class);
+		job.setMapOutputValueClass(FrameSketch.class);
+
+		job.setOutputKeyClass(Frame.class);
+		job.setOutputValueClass(FrequencyEstimate.class);
+
+		SequenceFileOutputFormat.setCompressOutput(job, false);
+
+		if(projectionQuerySet.isNamed()) {
+			LazyOutputFormat.setOutputFormatClass(job, SequenceFileOutputFormat.class);
+
+			for(int i=0; i<projectionQuerySet.size(); i++) {
+				MultipleOutputs.addNamedOutput(job, projectionQuerySet.getName(i), SequenceFileOutputFormat.class, Frame.class, FrequencyEstimate.class);
+			}
+		} else {
+			job.setOutputFormatClass(SequenceFileOutputFormat.class);
+		}
+
+		job.setMapperClass(MapClass.class);
+		job.setReducerClass(ReduceClass.class);
+
+		long startTime = System.currentTimeMillis();
+		job.waitForCompletion(true);
+		System.out.println("Job Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+
+		return 0;
+	}
+
+	/**
+	 * Dispatches command-line arguments to the tool via the
+	 * <code>ToolRunner</code>.
+	 */
+	public static void main(String[] args) throws Exception {
+		int res = ToolRunner.run(new ApproximateFrequencyStatistics(), args);
+		System.exit(res);
+	}
+}
@@ -1,185 +1,439 @@
-/**
- * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
- * Copyright © 2013 Peter Exner
- * 
- * This file is part of Refractive.
- *
- * Refractive is free software: you can redistribute it and/or modify
- * it under the terms of the GNU General Public License as published by
- * the Free Software Foundation, either version 3 of the License, or
- * (at your option) any later version.
- *
- * Refractive is distributed in the hope that it will be useful,
- * but WITHOUT ANY WARRANTY; without even the implied warranty of
- * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
- * GNU General Public License for more details.
- *
- * You should have received a copy of the GNU General Public License
- * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
- */
-
-package tool.statistics;
-
-import io.Frame;
-import java.io.IOException;
-import java.util.Iterator;
-import java.util.Map.Entry;
-
-import org.apache.hadoop.conf.Configured;
-import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.DoubleWritable;
-import org.apache.hadoop.io.LongWritable;
-import org.apache.hadoop.io.Text;
-import org.apache.hadoop.mapreduce.Job;
-import org.apache.hadoop.mapreduce.Mapper;
-import org.apache.hadoop.mapreduce.Reducer;
-import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
-import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
-import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
-import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
-import org.apache.hadoop.util.Tool;
-import org.apache.hadoop.util.ToolRunner;
-import org.apache.log4j.Logger;
-
-import edu.umd.cloud9.io.map.String2IntOpenHashMapWritable;
-
-import query.ProjectionQuery;
-
-
-public class ConditionalProbabilityStatistics extends Configured implements Tool  {
-	private static final Logger sLogger = Logger.getLogger(ConditionalProbabilityStatistics.class);
-
-	public static class MapClass extends
-	Mapper<LongWritable, Frame, Text, String2IntOpenHashMapWritable> {
-
-		private static ProjectionQuery projectionQuery;
-		private static ProjectionQuery conditionalProjectionQuery;
-		private String2IntOpenHashMapWritable map;
-		private static Text textKey = new Text();
-		
-		@Override
-		public void setup(Context context) {
-			System.out.println("Setting up mapper...");
-			projectionQuery = new ProjectionQuery(context.getConfiguration().get("projection"));
-			conditionalProjectionQuery = new ProjectionQuery(context.getConfiguration().get("conditional-projection"));
-			map = new String2IntOpenHashMapWritable();
-		}
-
-		@Override
-		public void map(LongWritable key, Frame frame, Context context)
-				throws IOException,
-				InterruptedException {
-
-			Frame projectedFrame = projectionQuery.parseQuery(frame);
-			Frame conditionalProjectedFrame = conditionalProjectionQuery.parseQuery(frame);
-			
-			if(conditionalProjectedFrame != null) {
-				map.clear();
-				map.put("*", 1);
-				
-				if(projectedFrame != null) {
-					map.put(projectedFrame.toString(), 1);
-				}
-				
-				textKey.set(conditionalProjectedFrame.toString());
-				context.write(textKey, map);
-			}
-		}
-	}
-
-	public static class ReduceClass extends
-	Reducer<Text, String2IntOpenHashMapWritable, Text, DoubleWritable> {
-		private static Text text = new Text();
-		private static DoubleWritable probability = new DoubleWritable();
-		
-		@Override
-		public void setup(Context context) {
-			System.out.println("Setting up reducer...");
-		}
-
-		@Override
-		public void reduce(Text key, Iterable<String2IntOpenHashMapWritable> maps, Context context)
-				throws IOException,
-				InterruptedException {
-			Iterator<String2IntOpenHashMapWritable> iter = maps.iterator();
-			
-			String2IntOpenHashMapWritable map = new String2IntOpenHashMapWritable();
-			while (iter.hasNext()) {
-				map.plus(iter.next());
-			}
-			
-			double denominator = map.get("*");
-			
-			for(Entry<String, Integer> entry:map.entrySet()) {
-				if(!entry.getKey().startsWith("*")) {
-					text.set(entry.getKey());
-					probability.set((double)entry.getValue() / denominator);
-					context.getCounter("frame projection", "count").increment(1);
-					context.write(text, probability);
-				}
-			}
-		}
-	}
-
-
-	@Override
-	public int run(String[] args) throws Exception {
-		if (args.length != 5) {
-			System.out.println("Usage tool.statistics.ConditionalProbabilityStatistics [inputPath] [outputPath] [numberOfReducers] [target-projection] [conditional-projection]");
-			return -1;
-		}
-
-		String inputPath = args[0];
-		String outPath = args[1];
-		int reduceTasks = Integer.parseInt(args[2]);
-		String projection = args[3];
-		String conditionalProjection = args[4];
-
-		sLogger.info("Tool: ConditionalProbabilityStatistics");
-		sLogger.info(" - input path: " + inputPath);
-		sLogger.info(" - output path: " + outPath);
-		sLogger.info(" - number of reducers: " + reduceTasks);
-		sLogger.info(" - target-projection: " + projection);
-		sLogger.info(" - conditional-projection: " + conditionalProjection);
-
-		Job job = new Job(getConf(), " Conditional Probability Statistics");
-
-		job.getConfiguration().set("projection", projection);
-		job.getConfiguration().set("conditional-projection", conditionalProjection);
-
-		job.setJarByClass(ConditionalProbabilityStatistics.class);
-		job.setNumReduceTasks(reduceTasks);
-
-		FileInputFormat.addInputPaths(job, inputPath);
-		FileOutputFormat.setOutputPath(job, new Path(outPath));
-
-		job.setInputFormatClass(SequenceFileInputFormat.class);
-
-		job.setMapOutputKeyClass(Text.class);
-		job.setMapOutputValueClass(String2IntOpenHashMapWritable.class);
-
-		job.setOutputKeyClass(Text.class);
-		job.setOutputValueClass(DoubleWritable.class);
-
-		SequenceFileOutputFormat.setCompressOutput(job, false);
-		job.setOutputFormatClass(SequenceFileOutputFormat.class);
-		
-		job.setMapperClass(MapClass.class);
-		job.setReducerClass(ReduceClass.class);
-		
-		long startTime = System.currentTimeMillis();
-		job.waitForCompletion(true);
-		System.out.println("Job Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
-
-		return 0;
-	}
-
-	/**
-	 * Dispatches command-line arguments to the tool via the
-	 * <code>ToolRunner</code>.
-	 */
-	public static void main(String[] args) throws Exception {
-		int res = ToolRunner.run(new ConditionalProbabilityStatistics(), args);
-		System.exit(res);
-	}
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package tool.statistics;
+
+import io.ColumnarFrameInputFormat;
+import io.Frame;
+import io.FrameDictionary;
+import io.FrameKey;
+import io.FrameKeyPartitioner;
+import io.IntFrameInputFormat;
+import io.RelationIndexInputFormat;
+import io.SkewAwarePartitioner;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.LazyOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.log4j.Logger;
+
+import query.ProjectionQuery;
+import query.ProjectionQuerySet;
+
+
+public class ConditionalProbabilityStatistics extends Configured implements Tool  {
+	private static final Logger sLogger = Logger.getLogger(ConditionalProbabilityStatistics.class);
+
+	/**
+	 * The setting holding the approximate number of bytes of heap a mapper
+	 * aggregates stripes in before writing them out. The default leaves
+	 * room for the sort buffer in the default task heap.
+	 */
+	public static final String AGGREGATION_BYTES = "conditional.aggregation.bytes";
+	public static final int DEFAULT_AGGREGATION_BYTES = 32 << 20;
+
+	/**
+	 * The setting holding the approximate number of bytes of heap a
+	 * combiner or reducer merges the counts of a conditional projection in
+	 * before it merges them on disk instead. The combiner runs next to the
+	 * sort buffer, so the default is sized like the mapper's.
+	 */
+	public static final String MERGE_BYTES = "conditional.merge.bytes";
+	public static final int DEFAULT_MERGE_BYTES = 32 << 20;
+
+	/**
+	 * The heap taken by a stripe besides its counts: the hash table node
+	 * and slot of the stripe, its key, and the stripe with its own empty
+	 * hash table, as measured on a 64-bit JVM with compressed references.
+	 */
+	private static final int STRIPE_OVERHEAD = 256;
+
+	/**
+	 * Aggregates the projected frames seen with each conditional projection
+	 * in a {@link FrameStripe}, keyed by the conditional projection. The
+	 * stripes are written out whenever they grow past their memory bound,
+	 * and once more at the end of the task.
+	 */
+	public static class MapClass extends
+	Mapper<LongWritable, Frame, FrameKey, FrameStripe> {
+
+		private static ProjectionQuery[] projectionQueries;
+		private static ProjectionQuery[] conditionalProjectionQueries;
+		private static FrameKey frameKey = new FrameKey();
+		private static FrameKey projectedKey = new FrameKey();
+		private Map<FrameKey, FrameStripe> stripes;
+		private long stripesBytes;
+		private long maximumStripesBytes;
+		
+		@Override
+		public void setup(Context context) {
+			System.out.println("Setting up mapper...");
+			ProjectionQuerySet projectionQuerySet = ProjectionQuerySet.read(context.getConfiguration(), "projection");
+			projectionQueries = projectionQuerySet.compile(0);
+			conditionalProjectionQueries = projectionQuerySet.compile(1);
+			stripes = new HashMap<FrameKey, FrameStripe>();
+			stripesBytes = 0;
+			maximumStripesBytes = context.getConfiguration().getLong(AGGREGATION_BYTES, DEFAULT_AGGREGATION_BYTES);
+		}
+
+		@Override
+		public void map(LongWritable key, Frame frame, Context context)
+				throws IOException,
+				InterruptedException {
+
+			frame.setReuseSlots(true);
+
+			for(int i=0; i<projectionQueries.length; i++) {
+				Frame conditionalProjectedFrame = conditionalProjectionQueries[i].parseQuery(frame);
+				
+				if(conditionalProjectedFrame != null) {
+					frameKey.set(i, conditionalProjectedFrame);
+					FrameStripe stripe = stripes.get(frameKey);
+					
+					if(stripe == null) {
+						FrameKey stripeKey = new FrameKey();
+						stripeKey.set(frameKey);
+						stripe = new FrameStripe();
+						stripes.put(stripeKey, stripe);
+						stripesBytes += stripeKey.getLength() + STRIPE_OVERHEAD;
+					}
+					
+					// A frame not matching the target projection counts
+					// towards the conditional projection only
+					stripe.addMarginal(1);
+					
+					Frame projectedFrame = projectionQueries[i].parseQuery(frame);
+					if(projectedFrame != null) {
+						projectedKey.set(projectedFrame);
+						long stripeBytes = stripe.getBytes();
+						stripe.add(projectedKey, 1);
+						stripesBytes += stripe.getBytes() - stripeBytes;
+					}
+				}
+			}
+			
+			if(stripesBytes >= maximumStripesBytes) {
+				context.getCounter("frame projection", "spills").increment(1);
+				flush(context);
+			}
+		}
+
+		@Override
+		public void cleanup(Context context) throws IOException, InterruptedException {
+			flush(context);
+		}
+
+		private void flush(Context context) throws IOException, InterruptedException {
+			for(Map.Entry<FrameKey, FrameStripe> entry:stripes.entrySet()) {
+				context.write(entry.getKey(), entry.getValue());
+			}
+			
+			stripes.clear();
+			stripesBytes = 0;
+		}
+	}
+
+	/**
+	 * Merges the partial stripes of a conditional projection. Stripes that
+	 * together grow past the memory bound of the merge are written out as
+	 * they are, leaving the rest of the merge to the reducer.
+	 */
+	public static class CombineClass extends
+	Reducer<FrameKey, FrameStripe, FrameKey, FrameStripe> {
+		private static FrameStripe stripe = new FrameStripe();
+		private long maximumStripeBytes;
+
+		@Override
+		public void setup(Context context) {
+			maximumStripeBytes = context.getConfiguration().getLong(MERGE_BYTES, DEFAULT_MERGE_BYTES);
+		}
+
+		@Override
+		public void reduce(FrameKey key, Iterable<FrameStripe> stripes, Context context)
+				throws IOException,
+				InterruptedException {
+			stripe.clear();
+			
+			for(FrameStripe partialStripe:stripes) {
+				stripe.add(partialStripe);
+				
+				if(stripe.getBytes() >= maximumStripeBytes) {
+					context.write(key, stripe);
+					stripe.clear();
+				}
+			}
+			
+			if(stripe.getMarginal() > 0 || stripe.getCounts().size() > 0) {
+				context.write(key, stripe);
+			}
+		}
+	}
+
+	/**
+	 * Merges the stripes of a conditional projection with a
+	 * {@link FrameStripeMerger}, which falls back to merging sorted runs on
+	 * disk for conditional projections whose counts outgrow its memory
+	 * bound, and divides the count of every projected frame by the number
+	 * of times the conditional projection was seen. The merged stripes of
+	 * heavy keys are only partial, and are written to the partial output to
+	 * be merged.
+	 */
+	public static class ReduceClass extends
+	Reducer<FrameKey, FrameStripe, Frame, DoubleWritable> {
+		private static Frame frame = new Frame();
+		private static FrameKey projectedKey = new FrameKey();
+		private static DoubleWritable probability = new DoubleWritable();
+		private static FrameStripe partialStripe = new FrameStripe();
+		private static ProjectionQuerySet projectionQuerySet;
+		private MultipleOutputs<Frame, DoubleWritable> multipleOutputs;
+		private long maximumMergeBytes;
+		private Set<FrameKey> heavyKeys;
+		
+		@Override
+		public void setup(Context context) throws IOException {
+			System.out.println("Setting up reducer...");
+			projectionQuerySet = ProjectionQuerySet.read(context.getConfiguration(), "projection");
+			multipleOutputs = new MultipleOutputs<Frame, DoubleWritable>(context);
+			maximumMergeBytes = context.getConfiguration().getLong(MERGE_BYTES, DEFAULT_MERGE_BYTES);
+			heavyKeys = SkewAwarePartitioner.getHeavyKeys(context.getConfiguration()).keySet();
+			frame.setReuseSlots(true);
+		}
+
+		@Override
+		public void cleanup(Context context) throws IOException, InterruptedException {
+			multipleOutputs.close();
+		}
+
+		@Override
+		public void reduce(FrameKey key, Iterable<FrameStripe> stripes, Context context)
+				throws IOException,
+				InterruptedException {
+			FrameStripeMerger merger = new FrameStripeMerger(maximumMergeBytes);
+			
+			try {
+				for(FrameStripe stripe:stripes) {
+					merger.add(stripe);
+				}
+				
+				if(merger.getRunCount() > 0) {
+					context.getCounter("frame projection", "merged on disk").increment(1);
+				}
+				
+				if(heavyKeys.contains(key)) {
+					writePartial(key, merger);
+					return;
+				}
+				
+				double denominator = merger.getMarginal();
+				long count;
+				
+				while((count = merger.next(projectedKey)) >= 0) {
+					projectedKey.get(frame);
+					probability.set(count / denominator);
+					context.getCounter("frame projection", "count").increment(1);
+					
+					if(projectionQuerySet.isNamed()) {
+						multipleOutputs.write(projectionQuerySet.getName(key.getQuery()), frame, probability);
+					} else {
+						context.write(frame, probability);
+					}
+				}
+			} finally {
+				merger.close();
+			}
+		}
+
+		/**
+		 * Writes the merged counts of a heavy key as stripes of bounded size,
+		 * the first of which holds the marginal count.
+		 */
+		private void writePartial(FrameKey key, FrameStripeMerger merger) throws IOException, InterruptedException {
+			partialStripe.clear();
+			partialStripe.addMarginal(merger.getMarginal());
+			long count;
+			
+			while((count = merger.next(projectedKey)) >= 0) {
+				partialStripe.add(projectedKey, count);
+				
+				if(partialStripe.getBytes() >= maximumMergeBytes) {
+					multipleOutputs.write(SkewedKeys.PARTIAL_OUTPUT, key, partialStripe);
+					partialStripe.clear();
+				}
+			}
+			
+			if(partialStripe.getMarginal() > 0 || partialStripe.getCounts().size() > 0) {
+				multipleOutputs.write(SkewedKeys.PARTIAL_OUTPUT, key, partialStripe);
+			}
+		}
+	}
+
+
+	/**
+	 * Sets up the shuffle, combiner, reducer and outputs of a job merging
+	 * the stripes of a set of queries.
+	 */
+	private static void setReduce(Job job, ProjectionQuerySet projectionQuerySet) {
+		job.setMapOutputKeyClass(FrameKey.class);
+		job.setMapOutputValueClass(FrameStripe.class);
+		job.setSortComparatorClass(FrameKey.Comparator.class);
+		job.setPartitionerClass(FrameKeyPartitioner.class);
+
+		job.setOutputKeyClass(Frame.class);
+		job.setOutputValueClass(DoubleWritable.class);
+
+		SequenceFileOutputFormat.setCompressOutput(job, false);
+		
+		if(projectionQuerySet.isNamed()) {
+			LazyOutputFormat.setOutputFormatClass(job, SequenceFileOutputFormat.class);
+
+			for(int i=0; i<projectionQuerySet.size(); i++) {
+				MultipleOutputs.addNamedOutput(job, projectionQuerySet.getName(i), SequenceFileOutputFormat.class, Frame.class, DoubleWritable.class);
+			}
+		} else {
+			job.setOutputFormatClass(SequenceFileOutputFormat.class);
+		}
+		
+		job.setCombinerClass(CombineClass.class);
+		job.setReducerClass(ReduceClass.class);
+	}
+
+	@Override
+	public int run(String[] args) throws Exception {
+		boolean isProjectionFile = args.length == 4 && ProjectionQuerySet.isFile(args[3]);
+		
+		if (args.length != 5 && !isProjectionFile) {
+			System.out.println("Usage tool.statistics.ConditionalProbabilityStatistics [inputPath] [outputPath] [numberOfReducers] [target-projection] [conditional-projection]");
+			System.out.println("   or tool.statistics.ConditionalProbabilityStatistics [inputPath] [outputPath] [numberOfReducers] [@projectionFile]");
+			return -1;
+		}
+
+		String inputPath = args[0];
+		String outPath = args[1];
+		int reduceTasks = Integer.parseInt(args[2]);
+		ProjectionQuerySet projectionQuerySet = isProjectionFile ? ProjectionQuerySet.read(args[3], 2, getConf()) : ProjectionQuerySet.of(args[3], args[4]);
+
+		sLogger.info("Tool: ConditionalProbabilityStatistics");
+		sLogger.info(" - input path: " + inputPath);
+		sLogger.info(" - output path: " + outPath);
+		sLogger.info(" - number of reducers: " + reduceTasks);
+		sLogger.info(" - target | conditional projection: " + projectionQuerySet);
+
+		Job job = new Job(getConf(), " Conditional Probability Statistics");
+
+		projectionQuerySet.write(job.getConfiguration(), "projection");
+
+		job.setJarByClass(ConditionalProbabilityStatistics.class);
+		job.setNumReduceTasks(reduceTasks);
+
+		FileInputFormat.addInputPaths(job, inputPath);
+		FileOutputFormat.setOutputPath(job, new Path(outPath));
+
+		if(getConf().getBoolean("columnar", false)) {
+			ColumnarFrameInputFormat.setRelations(job.getConfiguration(), projectionQuerySet.getRelations());
+			job.setInputFormatClass(ColumnarFrameInputFormat.class);
+		} else if(getConf().getBoolean("indexed", false)) {
+			// Only frames matching a conditional projection are counted
+			for(int i=0; i<projectionQuerySet.size(); i++) {
+				RelationIndexInputFormat.addRelations(job.getConfiguration(), new ProjectionQuery(projectionQuerySet.getProjection(i, 1)).getRelations());
+			}
+			job.setInputFormatClass(RelationIndexInputFormat.class);
+		} else if(getConf().get(FrameDictionary.DICTIONARY) != null) {
+			job.setInputFormatClass(IntFrameInputFormat.class);
+		} else {
+			job.setInputFormatClass(SequenceFileInputFormat.class);
+		}
+
+		setReduce(job, projectionQuerySet);
+		job.setMapperClass(MapClass.class);
+
+		if(getConf().getBoolean("skewed", false)) {
+			Map<FrameKey, Integer> heavyKeys = SkewedKeys.sample(job, projectionQuerySet.compile(1));
+			sLogger.info(" - heavy keys: " + heavyKeys.size());
+
+			if(!heavyKeys.isEmpty()) {
+				SkewAwarePartitioner.setHeavyKeys(job.getConfiguration(), heavyKeys);
+				job.setPartitionerClass(SkewAwarePartitioner.class);
+				MultipleOutputs.addNamedOutput(job, SkewedKeys.PARTIAL_OUTPUT, SequenceFileOutputFormat.class, FrameKey.class, FrameStripe.class);
+			}
+		}
+		
+		long startTime = System.currentTimeMillis();
+		job.waitForCompletion(true);
+		System.out.println("Job Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+
+		FileSystem fs = new Path(outPath).getFileSystem(job.getConfiguration());
+		if(job.isSuccessful() && SkewedKeys.hasPartialOutput(fs, new Path(outPath))) {
+			// Merges the partial stripes of the heavy keys
+			Job mergeJob = new Job(getConf(), " Conditional Probability Statistics (merge)");
+
+			projectionQuerySet.write(mergeJob.getConfiguration(), "projection");
+
+			mergeJob.setJarByClass(ConditionalProbabilityStatistics.class);
+			mergeJob.setNumReduceTasks(reduceTasks);
+
+			FileInputFormat.addInputPath(mergeJob, SkewedKeys.getPartialPath(new Path(outPath)));
+			FileOutputFormat.setOutputPath(mergeJob, SkewedKeys.getMergePath(new Path(outPath)));
+			mergeJob.setInputFormatClass(SequenceFileInputFormat.class);
+
+			setReduce(mergeJob, projectionQuerySet);
+			mergeJob.setMapperClass(Mapper.class);
+
+			startTime = System.currentTimeMillis();
+			mergeJob.waitForCompletion(true);
+			System.out.println("Merge Job Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+
+			// Keeps the partial stripes so that the merge can be run again
+			if(!mergeJob.isSuccessful()) {
+				System.out.println("Merge Job failed, partial results kept in " + outPath);
+				return -1;
+			}
+
+			SkewedKeys.finishMerge(fs, new Path(outPath));
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Dispatches command-line arguments to the tool via the
+	 * <code>ToolRunner</code>.
+	 */
+	public static void main(String[] args) throws Exception {
+		int res = ToolRunner.run(new ConditionalProbabilityStatistics(), args);
+		System.exit(res);
+	}
 }
\ No newline at end of file
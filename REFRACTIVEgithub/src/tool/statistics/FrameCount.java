@@ -0,0 +1,118 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package tool.statistics;
+
+import io.Frame;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * A partial count of a projection together with one of its projected
+ * frames. Projections are grouped by their slot values, so that the frames
+ * counted together may differ in their relations, and the frame is kept
+ * only to be written with the total count. It is kept in its serialized
+ * form, in a plain array since counts are kept by the thousands in the
+ * hash table of a mapper, and only read back when asked for.
+ */
+public class FrameCount implements Writable {
+	private static final byte[] EMPTY = new byte[0];
+
+	private long count;
+	private byte[] frameBytes = EMPTY;
+	private int frameLength;
+	private DataInputBuffer inputBuffer;
+
+	public long getCount() {
+		return count;
+	}
+
+	public void setCount(long count) {
+		this.count = count;
+	}
+
+	public void increment() {
+		count++;
+	}
+
+	/**
+	 * Returns the number of bytes of the serialized frame.
+	 */
+	public int getFrameLength() {
+		return frameLength;
+	}
+
+	/**
+	 * Sets the frame to a copy of a frame serialized by
+	 * {@link Frame#write}. A count that only grows to hold it gets an array
+	 * of exactly its length.
+	 */
+	public void setFrame(byte[] data, int length) {
+		if(frameBytes.length < length) {
+			frameBytes = new byte[length];
+		}
+
+		System.arraycopy(data, 0, frameBytes, 0, length);
+		frameLength = length;
+	}
+
+	/**
+	 * Sets the frame to a copy of the frame of another count.
+	 */
+	public void setFrame(FrameCount frameCount) {
+		setFrame(frameCount.frameBytes, frameCount.frameLength);
+	}
+
+	/**
+	 * Reads the frame into the given frame.
+	 */
+	public void getFrame(Frame frame) throws IOException {
+		if(inputBuffer == null) {
+			inputBuffer = new DataInputBuffer();
+		}
+
+		inputBuffer.reset(frameBytes, frameLength);
+		frame.readFields(inputBuffer);
+	}
+
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		count = WritableUtils.readVLong(in);
+		frameLength = WritableUtils.readVInt(in);
+
+		if(frameBytes.length < frameLength) {
+			frameBytes = new byte[Math.max(frameLength, frameBytes.length * 2)];
+		}
+		in.readFully(frameBytes, 0, frameLength);
+	}
+
+	@Override
+	public void write(DataOutput out) throws IOException {
+		WritableUtils.writeVLong(out, count);
+		WritableUtils.writeVInt(out, frameLength);
+		out.write(frameBytes, 0, frameLength);
+	}
+}
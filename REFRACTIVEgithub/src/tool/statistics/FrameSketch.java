@@ -0,0 +1,407 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package tool.statistics;
+
+import io.Frame;
+import io.FrameKey;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.util.hash.Hash;
+import org.apache.hadoop.util.hash.MurmurHash;
+
+/**
+ * A summary of the frame keys counted by a task, of a size that does not
+ * depend on the number of keys. It holds
+ * <ul>
+ * <li>a count-min sketch, whose smallest counter of a key is an upper bound
+ * of the count of the key,</li>
+ * <li>a space-saving table of the most frequent keys, each with a count that
+ * is an upper bound of its count and an error that the count exceeds it by
+ * at most, and</li>
+ * <li>the registers of a HyperLogLog estimate of the number of distinct
+ * keys.</li>
+ * </ul>
+ * The table keeps up to twice its capacity of keys, and is cut down to its
+ * capacity by dropping the keys with the smallest counts. A key that enters
+ * the table afterwards may have been dropped before, so it starts from the
+ * largest dropped count, which is also its error.
+ * <p>
+ * Sketches of the same dimensions are merged by adding their counters and
+ * tables and taking the largest of their registers.
+ * <p>
+ * A key of the table keeps the first frame it was counted with, so that
+ * keys that only hold slot values can still be written as frames.
+ */
+public class FrameSketch implements Writable {
+	private static final Hash HASH = MurmurHash.getInstance();
+
+	/**
+	 * The count, error and serialized frame of a key of the space-saving
+	 * table.
+	 */
+	private static class HeavyKey {
+		long count;
+		long error;
+		final byte[] frame;
+
+		HeavyKey(long count, long error, byte[] frame) {
+			this.count = count;
+			this.error = error;
+			this.frame = frame;
+		}
+	}
+
+	/**
+	 * Orders the entries of the space-saving table by decreasing count.
+	 */
+	private static final Comparator<Map.Entry<FrameKey, HeavyKey>> COUNT_ORDER = new Comparator<Map.Entry<FrameKey, HeavyKey>>() {
+		@Override
+		public int compare(Map.Entry<FrameKey, HeavyKey> entry1, Map.Entry<FrameKey, HeavyKey> entry2) {
+			long count1 = entry1.getValue().count;
+			long count2 = entry2.getValue().count;
+
+			return (count1 > count2) ? -1 : ((count1 < count2) ? 1 : entry1.getKey().compareTo(entry2.getKey()));
+		}
+	};
+
+	private int width;
+	private int depth;
+	private int capacity;
+	private int precision;
+	private long total;
+	private long[] counters;
+	private byte[] registers;
+	private Map<FrameKey, HeavyKey> heavyKeys = new HashMap<FrameKey, HeavyKey>();
+	private long droppedCount;
+	private DataOutputBuffer frameBuffer;
+	private DataInputBuffer frameInput;
+
+	public FrameSketch() {
+	}
+
+	/**
+	 * Creates an empty sketch.
+	 *
+	 * @param width the number of counters per row of the count-min sketch
+	 * @param depth the number of rows of the count-min sketch
+	 * @param capacity the number of keys the space-saving table reports
+	 * @param precision the base-2 logarithm of the number of HyperLogLog
+	 * registers, from 4 to 16
+	 */
+	public FrameSketch(int width, int depth, int capacity, int precision) {
+		if(width < 1 || depth < 1 || capacity < 1 || precision < 4 || precision > 16) {
+			throw new IllegalArgumentException("Invalid sketch dimensions: " + width + "x" + depth + ", capacity " + capacity + ", precision " + precision);
+		}
+
+		this.width = width;
+		this.depth = depth;
+		this.capacity = capacity;
+		this.precision = precision;
+		this.counters = new long[width * depth];
+		this.registers = new byte[1 << precision];
+	}
+
+	/**
+	 * Creates an empty sketch of the same dimensions as this one.
+	 */
+	public FrameSketch newSketch() {
+		return new FrameSketch(width, depth, capacity, precision);
+	}
+
+	/**
+	 * Returns the number of keys counted.
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+	/**
+	 * Counts a key, made from the given frame. The key and the frame are
+	 * copied if the key enters the space-saving table, so both may be
+	 * reused by the caller.
+	 */
+	public void add(FrameKey key, Frame frame) throws IOException {
+		int hash1 = HASH.hash(key.getBytes(), key.getLength(), 0);
+		int hash2 = HASH.hash(key.getBytes(), key.getLength(), hash1);
+
+		total++;
+
+		for(int i=0; i<depth; i++) {
+			counters[i * width + getColumn(hash1, hash2, i)]++;
+		}
+
+		long hash = ((long)hash1 << 32) | (hash2 & 0xffffffffL);
+		int register = (int)(hash >>> (64 - precision));
+		byte rank = (byte)(Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1);
+		if(registers[register] < rank) {
+			registers[register] = rank;
+		}
+
+		HeavyKey heavyKey = heavyKeys.get(key);
+		if(heavyKey == null) {
+			if(frameBuffer == null) {
+				frameBuffer = new DataOutputBuffer();
+			}
+			frameBuffer.reset();
+			frame.write(frameBuffer);
+
+			FrameKey tableKey = new FrameKey();
+			tableKey.set(key);
+			heavyKeys.put(tableKey, new HeavyKey(droppedCount + 1, droppedCount, Arrays.copyOf(frameBuffer.getData(), frameBuffer.getLength())));
+
+			if(heavyKeys.size() >= 2 * capacity) {
+				prune();
+			}
+		} else {
+			heavyKey.count++;
+		}
+	}
+
+	/**
+	 * Returns the column of a key in a row of the count-min sketch, from two
+	 * independent hashes of the key.
+	 */
+	private int getColumn(int hash1, int hash2, int row) {
+		return ((hash1 + row * hash2) & Integer.MAX_VALUE) % width;
+	}
+
+	/**
+	 * Cuts the space-saving table down to its capacity.
+	 */
+	private void prune() {
+		if(heavyKeys.size() <= capacity) {
+			return;
+		}
+
+		List<Map.Entry<FrameKey, HeavyKey>> entries = new ArrayList<Map.Entry<FrameKey, HeavyKey>>(heavyKeys.entrySet());
+		Collections.sort(entries, COUNT_ORDER);
+
+		for(int i=capacity; i<entries.size(); i++) {
+			droppedCount = Math.max(droppedCount, entries.get(i).getValue().count);
+			heavyKeys.remove(entries.get(i).getKey());
+		}
+	}
+
+	/**
+	 * Adds the counts of a sketch of the same dimensions.
+	 */
+	public void add(FrameSketch other) throws IOException {
+		if(width != other.width || depth != other.depth || capacity != other.capacity || precision != other.precision) {
+			throw new IOException("Cannot merge sketches of different dimensions");
+		}
+
+		total += other.total;
+
+		for(int i=0; i<counters.length; i++) {
+			counters[i] += other.counters[i];
+		}
+
+		for(int i=0; i<registers.length; i++) {
+			if(registers[i] < other.registers[i]) {
+				registers[i] = other.registers[i];
+			}
+		}
+
+		// A key missing from one of the tables was counted at most as often
+		// as the largest count that table dropped
+		Set<FrameKey> keys = new HashSet<FrameKey>(heavyKeys.keySet());
+		keys.addAll(other.heavyKeys.keySet());
+		Map<FrameKey, HeavyKey> mergedKeys = new HashMap<FrameKey, HeavyKey>();
+
+		for(FrameKey key:keys) {
+			HeavyKey heavyKey = heavyKeys.get(key);
+			HeavyKey otherHeavyKey = other.heavyKeys.get(key);
+			long count = ((heavyKey == null) ? droppedCount : heavyKey.count) + ((otherHeavyKey == null) ? other.droppedCount : otherHeavyKey.count);
+			long error = ((heavyKey == null) ? droppedCount : heavyKey.error) + ((otherHeavyKey == null) ? other.droppedCount : otherHeavyKey.error);
+
+			FrameKey mergedKey = new FrameKey();
+			mergedKey.set(key);
+			mergedKeys.put(mergedKey, new HeavyKey(count, error, (heavyKey == null) ? otherHeavyKey.frame : heavyKey.frame));
+		}
+
+		heavyKeys = mergedKeys;
+		droppedCount += other.droppedCount;
+		prune();
+	}
+
+	/**
+	 * Returns the smallest counter of a key in the count-min sketch.
+	 */
+	private long getSketchCount(FrameKey key) {
+		int hash1 = HASH.hash(key.getBytes(), key.getLength(), 0);
+		int hash2 = HASH.hash(key.getBytes(), key.getLength(), hash1);
+		long count = Long.MAX_VALUE;
+
+		for(int i=0; i<depth; i++) {
+			count = Math.min(count, counters[i * width + getColumn(hash1, hash2, i)]);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Returns the estimated counts of up to the capacity of the sketch most
+	 * frequent keys, in decreasing order of their counts. The true count of
+	 * a key is at least its estimate minus its error, and at most its
+	 * estimate.
+	 */
+	public List<Map.Entry<FrameKey, FrequencyEstimate>> getHeavyHitters() {
+		List<Map.Entry<FrameKey, HeavyKey>> entries = new ArrayList<Map.Entry<FrameKey, HeavyKey>>(heavyKeys.entrySet());
+		Collections.sort(entries, COUNT_ORDER);
+
+		List<Map.Entry<FrameKey, FrequencyEstimate>> heavyHitters = new ArrayList<Map.Entry<FrameKey, FrequencyEstimate>>();
+		for(Map.Entry<FrameKey, HeavyKey> entry:entries.subList(0, Math.min(capacity, entries.size()))) {
+			long count = Math.min(entry.getValue().count, getSketchCount(entry.getKey()));
+			long lowerBound = Math.max(0, entry.getValue().count - entry.getValue().error);
+
+			heavyHitters.add(new AbstractMap.SimpleEntry<FrameKey, FrequencyEstimate>(entry.getKey(), new FrequencyEstimate(count, Math.max(0, count - lowerBound))));
+		}
+
+		Collections.sort(heavyHitters, new Comparator<Map.Entry<FrameKey, FrequencyEstimate>>() {
+			@Override
+			public int compare(Map.Entry<FrameKey, FrequencyEstimate> entry1, Map.Entry<FrameKey, FrequencyEstimate> entry2) {
+				long count1 = entry1.getValue().getCount();
+				long count2 = entry2.getValue().getCount();
+
+				return (count1 > count2) ? -1 : ((count1 < count2) ? 1 : entry1.getKey().compareTo(entry2.getKey()));
+			}
+		});
+
+		return heavyHitters;
+	}
+
+	/**
+	 * Reads the first frame counted with a key of the space-saving table,
+	 * such as a key returned by {@link #getHeavyHitters()}.
+	 */
+	public void getFrame(FrameKey key, Frame frame) throws IOException {
+		HeavyKey heavyKey = heavyKeys.get(key);
+
+		if(heavyKey == null) {
+			throw new IOException("Key not in the space-saving table");
+		}
+
+		if(frameInput == null) {
+			frameInput = new DataInputBuffer();
+		}
+		frameInput.reset(heavyKey.frame, heavyKey.frame.length);
+		frame.readFields(frameInput);
+	}
+
+	/**
+	 * Returns the HyperLogLog estimate of the number of distinct keys, with a
+	 * relative standard error of about 1.04 / sqrt(2^precision).
+	 */
+	public long getDistinctCount() {
+		int registerCount = registers.length;
+		double sum = 0;
+		int zeroRegisters = 0;
+
+		for(byte rank:registers) {
+			sum += 1.0 / (1L << rank);
+			if(rank == 0) {
+				zeroRegisters++;
+			}
+		}
+
+		double alpha = (registerCount == 16) ? 0.673 : ((registerCount == 32) ? 0.697 : ((registerCount == 64) ? 0.709 : 0.7213 / (1 + 1.079 / registerCount)));
+		double estimate = alpha * registerCount * registerCount / sum;
+
+		// Linear counting is more accurate for small cardinalities
+		if(estimate <= 2.5 * registerCount && zeroRegisters > 0) {
+			estimate = registerCount * Math.log((double)registerCount / zeroRegisters);
+		}
+
+		return Math.round(estimate);
+	}
+
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		width = WritableUtils.readVInt(in);
+		depth = WritableUtils.readVInt(in);
+		capacity = WritableUtils.readVInt(in);
+		precision = WritableUtils.readVInt(in);
+		total = WritableUtils.readVLong(in);
+
+		counters = new long[width * depth];
+		for(int i=0; i<counters.length; i++) {
+			counters[i] = WritableUtils.readVLong(in);
+		}
+
+		registers = new byte[1 << precision];
+		in.readFully(registers);
+
+		droppedCount = WritableUtils.readVLong(in);
+		heavyKeys = new HashMap<FrameKey, HeavyKey>();
+		int heavyKeyCount = WritableUtils.readVInt(in);
+		for(int i=0; i<heavyKeyCount; i++) {
+			FrameKey key = new FrameKey();
+			key.readFields(in);
+			long count = WritableUtils.readVLong(in);
+			long error = WritableUtils.readVLong(in);
+			byte[] frame = new byte[WritableUtils.readVInt(in)];
+			in.readFully(frame);
+			heavyKeys.put(key, new HeavyKey(count, error, frame));
+		}
+	}
+
+	@Override
+	public void write(DataOutput out) throws IOException {
+		WritableUtils.writeVInt(out, width);
+		WritableUtils.writeVInt(out, depth);
+		WritableUtils.writeVInt(out, capacity);
+		WritableUtils.writeVInt(out, precision);
+		WritableUtils.writeVLong(out, total);
+
+		for(long counter:counters) {
+			WritableUtils.writeVLong(out, counter);
+		}
+
+		out.write(registers);
+
+		WritableUtils.writeVLong(out, droppedCount);
+		WritableUtils.writeVInt(out, heavyKeys.size());
+		for(Map.Entry<FrameKey, HeavyKey> entry:heavyKeys.entrySet()) {
+			entry.getKey().write(out);
+			WritableUtils.writeVLong(out, entry.getValue().count);
+			WritableUtils.writeVLong(out, entry.getValue().error);
+			WritableUtils.writeVInt(out, entry.getValue().frame.length);
+			out.write(entry.getValue().frame);
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package tool.statistics;
+
+import io.FrameKey;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * The counts of the projected frames seen with a conditional projection,
+ * together with the number of times the conditional projection itself was
+ * seen. Stripes of the same conditional projection are merged by adding
+ * their counts.
+ */
+public class FrameStripe implements Writable {
+	/**
+	 * The heap taken by an entry besides its key bytes: the hash table node
+	 * and slot, the key and the count array, as measured on a 64-bit JVM
+	 * with compressed references.
+	 */
+	private static final int ENTRY_OVERHEAD = 128;
+
+	private long marginal;
+	private final Map<FrameKey, long[]> counts = new HashMap<FrameKey, long[]>();
+	private long bytes;
+
+	public long getMarginal() {
+		return marginal;
+	}
+
+	public void addMarginal(long count) {
+		marginal += count;
+	}
+
+	public Map<FrameKey, long[]> getCounts() {
+		return counts;
+	}
+
+	/**
+	 * Returns an estimate of the memory taken by the stripe.
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Adds to the count of a projected frame. The key is copied if it is
+	 * new to the stripe, so it may be reused by the caller.
+	 */
+	public void add(FrameKey key, long count) throws IOException {
+		long[] keyCount = counts.get(key);
+
+		if(keyCount == null) {
+			FrameKey stripeKey = new FrameKey();
+			stripeKey.set(key);
+			keyCount = new long[1];
+			counts.put(stripeKey, keyCount);
+			bytes += stripeKey.getLength() + ENTRY_OVERHEAD;
+		}
+
+		keyCount[0] += count;
+	}
+
+	/**
+	 * Adds the marginal and counts of another stripe.
+	 */
+	public void add(FrameStripe other) throws IOException {
+		marginal += other.marginal;
+
+		for(Map.Entry<FrameKey, long[]> entry:other.counts.entrySet()) {
+			add(entry.getKey(), entry.getValue()[0]);
+		}
+	}
+
+	public void clear() {
+		marginal = 0;
+		counts.clear();
+		bytes = 0;
+	}
+
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		clear();
+
+		marginal = WritableUtils.readVLong(in);
+		int size = WritableUtils.readVInt(in);
+
+		for(int i=0; i<size; i++) {
+			FrameKey key = new FrameKey();
+			key.readFields(in);
+			counts.put(key, new long[] { WritableUtils.readVLong(in) });
+			bytes += key.getLength() + ENTRY_OVERHEAD;
+		}
+	}
+
+	@Override
+	public void write(DataOutput out) throws IOException {
+		WritableUtils.writeVLong(out, marginal);
+		WritableUtils.writeVInt(out, counts.size());
+
+		for(Map.Entry<FrameKey, long[]> entry:counts.entrySet()) {
+			entry.getKey().write(out);
+			WritableUtils.writeVLong(out, entry.getValue()[0]);
+		}
+	}
+}
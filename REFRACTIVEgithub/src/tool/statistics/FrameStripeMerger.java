@@ -0,0 +1,231 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package tool.statistics;
+
+import io.FrameKey;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Merges the stripes of a conditional projection in bounded memory. The
+ * counts are added up in a single stripe until it grows past its memory
+ * bound, when they are written to a local file sorted by key and the stripe
+ * is cleared. If any run was written, the merged counts are read back by
+ * merging the sorted runs, so that a heavy conditional projection costs
+ * disk space rather than memory.
+ */
+public class FrameStripeMerger implements Closeable {
+	/**
+	 * A sorted run of counts in a local file.
+	 */
+	private static class Run {
+		final File file;
+		final DataInputStream in;
+		int remaining;
+		final FrameKey key = new FrameKey();
+		long count;
+
+		Run(File file, int size) throws IOException {
+			this.file = file;
+			this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			this.remaining = size;
+		}
+
+		boolean next() throws IOException {
+			if(remaining == 0) {
+				return false;
+			}
+
+			key.readFields(in);
+			count = WritableUtils.readVLong(in);
+			remaining--;
+			return true;
+		}
+	}
+
+	private static final Comparator<Map.Entry<FrameKey, long[]>> ENTRY_ORDER = new Comparator<Map.Entry<FrameKey, long[]>>() {
+		@Override
+		public int compare(Map.Entry<FrameKey, long[]> entry1, Map.Entry<FrameKey, long[]> entry2) {
+			return entry1.getKey().compareTo(entry2.getKey());
+		}
+	};
+
+	private static final Comparator<Run> RUN_ORDER = new Comparator<Run>() {
+		@Override
+		public int compare(Run run1, Run run2) {
+			return run1.key.compareTo(run2.key);
+		}
+	};
+
+	private final long maximumBytes;
+	private final FrameStripe stripe = new FrameStripe();
+	private final List<File> runFiles = new ArrayList<File>();
+	private final List<Integer> runSizes = new ArrayList<Integer>();
+	private long marginal;
+	private Iterator<Map.Entry<FrameKey, long[]>> stripeIterator;
+	private PriorityQueue<Run> runs;
+
+	public FrameStripeMerger(long maximumBytes) {
+		this.maximumBytes = maximumBytes;
+	}
+
+	/**
+	 * Adds a stripe. All stripes must be added before the counts are read.
+	 */
+	public void add(FrameStripe other) throws IOException {
+		marginal += other.getMarginal();
+		stripe.add(other);
+
+		if(stripe.getBytes() >= maximumBytes) {
+			spill();
+		}
+	}
+
+	/**
+	 * Returns the number of times the conditional projection was seen.
+	 */
+	public long getMarginal() {
+		return marginal;
+	}
+
+	/**
+	 * Returns the number of runs written to disk.
+	 */
+	public int getRunCount() {
+		return runFiles.size();
+	}
+
+	private void spill() throws IOException {
+		List<Map.Entry<FrameKey, long[]>> entries = new ArrayList<Map.Entry<FrameKey, long[]>>(stripe.getCounts().entrySet());
+		Collections.sort(entries, ENTRY_ORDER);
+
+		File file = File.createTempFile("stripe", ".run");
+		runFiles.add(file);
+		runSizes.add(entries.size());
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			for(Map.Entry<FrameKey, long[]> entry:entries) {
+				entry.getKey().write(out);
+				WritableUtils.writeVLong(out, entry.getValue()[0]);
+			}
+		} finally {
+			out.close();
+		}
+
+		stripe.clear();
+	}
+
+	/**
+	 * Reads the next merged count into the given key, returning the count,
+	 * or -1 if all counts were read. Counts come in key order if any run
+	 * was written.
+	 */
+	public long next(FrameKey key) throws IOException {
+		if(runs == null && stripeIterator == null) {
+			if(runFiles.isEmpty()) {
+				stripeIterator = stripe.getCounts().entrySet().iterator();
+			} else {
+				if(stripe.getCounts().size() > 0) {
+					spill();
+				}
+				openRuns();
+			}
+		}
+
+		if(stripeIterator != null) {
+			if(!stripeIterator.hasNext()) {
+				return -1;
+			}
+
+			Map.Entry<FrameKey, long[]> entry = stripeIterator.next();
+			key.set(entry.getKey());
+			return entry.getValue()[0];
+		}
+
+		if(runs.isEmpty()) {
+			return -1;
+		}
+
+		Run run = runs.poll();
+		key.set(run.key);
+		long count = run.count;
+		advance(run);
+
+		while(!runs.isEmpty() && runs.peek().key.equals(key)) {
+			run = runs.poll();
+			count += run.count;
+			advance(run);
+		}
+
+		return count;
+	}
+
+	private void openRuns() throws IOException {
+		runs = new PriorityQueue<Run>(runFiles.size(), RUN_ORDER);
+
+		for(int i=0; i<runFiles.size(); i++) {
+			advance(new Run(runFiles.get(i), runSizes.get(i)));
+		}
+	}
+
+	private void advance(Run run) throws IOException {
+		if(run.next()) {
+			runs.add(run);
+		} else {
+			run.in.close();
+		}
+	}
+
+	/**
+	 * Deletes the runs written to disk.
+	 */
+	@Override
+	public void close() {
+		if(runs != null) {
+			for(Run run:runs) {
+				IOUtils.closeStream(run.in);
+			}
+		}
+
+		for(File file:runFiles) {
+			file.delete();
+		}
+	}
+}
@@ -0,0 +1,75 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package tool.statistics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * An estimated count with its error: the true count is at least the count
+ * minus the error, and at most the count.
+ */
+public class FrequencyEstimate implements Writable {
+	private long count;
+	private long error;
+
+	public FrequencyEstimate() {
+	}
+
+	public FrequencyEstimate(long count, long error) {
+		this.count = count;
+		this.error = error;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getError() {
+		return error;
+	}
+
+	public void set(long count, long error) {
+		this.count = count;
+		this.error = error;
+	}
+
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		count = WritableUtils.readVLong(in);
+		error = WritableUtils.readVLong(in);
+	}
+
+	@Override
+	public void write(DataOutput out) throws IOException {
+		WritableUtils.writeVLong(out, count);
+		WritableUtils.writeVLong(out, error);
+	}
+
+	@Override
+	public String toString() {
+		return count + "\t" + error;
+	}
+}
@@ -1,164 +1,301 @@
-/**
- * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
- * Copyright © 2013 Peter Exner
- * 
- * This file is part of Refractive.
- *
- * Refractive is free software: you can redistribute it and/or modify
- * it under the terms of the GNU General Public License as published by
- * the Free Software Foundation, either version 3 of the License, or
- * (at your option) any later version.
- *
- * Refractive is distributed in the hope that it will be useful,
- * but WITHOUT ANY WARRANTY; without even the implied warranty of
- * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
- * GNU General Public License for more details.
- *
- * You should have received a copy of the GNU General Public License
- * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
- */
-
-package tool.statistics;
-
-import io.Frame;
-import java.io.IOException;
-import java.util.Iterator;
-import org.apache.hadoop.conf.Configured;
-import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.DoubleWritable;
-import org.apache.hadoop.io.LongWritable;
-import org.apache.hadoop.io.Text;
-import org.apache.hadoop.mapreduce.Job;
-import org.apache.hadoop.mapreduce.Mapper;
-import org.apache.hadoop.mapreduce.Reducer;
-import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
-import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
-import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
-import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
-import org.apache.hadoop.util.Tool;
-import org.apache.hadoop.util.ToolRunner;
-import org.apache.log4j.Logger;
-
-import query.ProjectionQuery;
-
-
-public class FrequencyStatistics extends Configured implements Tool  {
-	private static final Logger sLogger = Logger.getLogger(FrequencyStatistics.class);
-
-	public static class MapClass extends
-	Mapper<LongWritable, Frame, Text, Frame> {
-
-		private static ProjectionQuery projectionQuery;
-		private static Text textKey = new Text();
-		
-		@Override
-		public void setup(Context context) {
-			System.out.println("Setting up mapper...");
-			projectionQuery = new ProjectionQuery(context.getConfiguration().get("query"));
-		}
-
-		@Override
-		public void map(LongWritable key, Frame frame, Context context)
-				throws IOException,
-				InterruptedException {
-
-			Frame projectedFrame = projectionQuery.parseQuery(frame);
-			if(projectedFrame != null) {
-				textKey.set(projectedFrame.toSlotValues());
-				context.write(textKey, projectedFrame);	
-			}
-		}
-	}
-
-	public static class ReduceClass extends
-	Reducer<Text, Frame, Text, DoubleWritable> {
-		private static Text text = new Text();
-		private static DoubleWritable count = new DoubleWritable();
-		
-		@Override
-		public void setup(Context context) {
-			System.out.println("Setting up reducer...");
-		}
-
-		@Override
-		public void reduce(Text key, Iterable<Frame> frames, Context context)
-				throws IOException,
-				InterruptedException {
-			Iterator<Frame> iter = frames.iterator();
-			
-			Frame frame = null;
-			long frameCount = 0;
-			
-			while (iter.hasNext()) {
-				frame = iter.next();
-				frameCount++;
-			}
-			
-			if(frameCount > 0) {
-				text.set(frame.toString());
-				count.set(frameCount);
-				context.getCounter("frame projection", "count").increment(1);
-				context.write(text, count);
-			}
-		}
-	}
-
-
-	@Override
-	public int run(String[] args) throws Exception {
-		if (args.length != 4) {
-			System.out.println("Usage tool.statistics.FrequencyStatistics [inputPath] [outputPath] [numberOfReducers] [projection]");
-			return -1;
-		}
-
-		String inputPath = args[0];
-		String outPath = args[1];
-		int reduceTasks = Integer.parseInt(args[2]);
-		String query = args[3];
-
-		sLogger.info("Tool: FrequencyStatistics");
-		sLogger.info(" - input path: " + inputPath);
-		sLogger.info(" - output path: " + outPath);
-		sLogger.info(" - number of reducers: " + reduceTasks);
-		sLogger.info(" - projection: " + query);
-
-		Job job = new Job(getConf(), "Frequency Statistics");
-
-		job.getConfiguration().set("query", query);
-
-		job.setJarByClass(FrequencyStatistics.class);
-		job.setNumReduceTasks(reduceTasks);
-
-		FileInputFormat.addInputPaths(job, inputPath);
-		FileOutputFormat.setOutputPath(job, new Path(outPath));
-
-		job.setInputFormatClass(SequenceFileInputFormat.class);
-
-		job.setMapOutputKeyClass(Text.class);
-		job.setMapOutputValueClass(Frame.class);
-
-		job.setOutputKeyClass(Text.class);
-		job.setOutputValueClass(DoubleWritable.class);
-
-		SequenceFileOutputFormat.setCompressOutput(job, false);
-		job.setOutputFormatClass(SequenceFileOutputFormat.class);
-		
-		job.setMapperClass(MapClass.class);
-		job.setReducerClass(ReduceClass.class);
-		
-		long startTime = System.currentTimeMillis();
-		job.waitForCompletion(true);
-		System.out.println("Job Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
-
-		return 0;
-	}
-
-	/**
-	 * Dispatches command-line arguments to the tool via the
-	 * <code>ToolRunner</code>.
-	 */
-	public static void main(String[] args) throws Exception {
-		int res = ToolRunner.run(new FrequencyStatistics(), args);
-		System.exit(res);
-	}
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package tool.statistics;
+
+import io.ColumnarFrameInputFormat;
+import io.Frame;
+import io.FrameDictionary;
+import io.FrameKey;
+import io.FrameKeyPartitioner;
+import io.IntFrameInputFormat;
+import io.RelationIndexInputFormat;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.LazyOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.log4j.Logger;
+
+import query.ProjectionQuery;
+import query.ProjectionQuerySet;
+
+
+public class FrequencyStatistics extends Configured implements Tool  {
+	private static final Logger sLogger = Logger.getLogger(FrequencyStatistics.class);
+
+	/**
+	 * The setting holding the approximate number of bytes of heap a mapper
+	 * counts projected keys in before writing them out. The default leaves
+	 * room for the sort buffer in the default task heap.
+	 */
+	public static final String AGGREGATION_BYTES = "frequency.aggregation.bytes";
+	public static final int DEFAULT_AGGREGATION_BYTES = 32 << 20;
+
+	/**
+	 * The heap taken by a counted key besides its key and frame bytes: the
+	 * hash table node and slot, the key and the count with their arrays,
+	 * as measured on a 64-bit JVM with compressed references.
+	 */
+	private static final int ENTRY_OVERHEAD = 160;
+
+	/**
+	 * Counts projected frames by the slot values of their {@link FrameKey}
+	 * in a hash table that is written out whenever it grows past its memory
+	 * bound, and once more at the end of the task, so that every distinct
+	 * projection leaves a mapper only a few times. The first frame of a
+	 * projection is kept with its count, to be written by the reducer.
+	 */
+	public static class MapClass extends
+	Mapper<LongWritable, Frame, FrameKey, FrameCount> {
+
+		private static ProjectionQuery[] projectionQueries;
+		private static FrameKey frameKey = new FrameKey();
+		private static DataOutputBuffer frameBuffer = new DataOutputBuffer();
+		private Map<FrameKey, FrameCount> counts;
+		private long countsBytes;
+		private long maximumCountsBytes;
+		
+		@Override
+		public void setup(Context context) {
+			System.out.println("Setting up mapper...");
+			projectionQueries = ProjectionQuerySet.read(context.getConfiguration(), "query").compile(0);
+			counts = new HashMap<FrameKey, FrameCount>();
+			countsBytes = 0;
+			maximumCountsBytes = context.getConfiguration().getLong(AGGREGATION_BYTES, DEFAULT_AGGREGATION_BYTES);
+		}
+
+		@Override
+		public void map(LongWritable key, Frame frame, Context context)
+				throws IOException,
+				InterruptedException {
+
+			frame.setReuseSlots(true);
+
+			for(int i=0; i<projectionQueries.length; i++) {
+				Frame projectedFrame = projectionQueries[i].parseQuery(frame);
+				if(projectedFrame != null) {
+					frameKey.setSlotValues(i, projectedFrame);
+					FrameCount frameCount = counts.get(frameKey);
+					
+					if(frameCount == null) {
+						FrameKey countedKey = new FrameKey();
+						countedKey.set(frameKey);
+						frameCount = new FrameCount();
+						frameBuffer.reset();
+						projectedFrame.write(frameBuffer);
+						frameCount.setFrame(frameBuffer.getData(), frameBuffer.getLength());
+						counts.put(countedKey, frameCount);
+						countsBytes += countedKey.getLength() + frameCount.getFrameLength() + ENTRY_OVERHEAD;
+					}
+					
+					frameCount.increment();
+				}
+			}
+			
+			if(countsBytes >= maximumCountsBytes) {
+				context.getCounter("frame projection", "spills").increment(1);
+				flush(context);
+			}
+		}
+
+		@Override
+		public void cleanup(Context context) throws IOException, InterruptedException {
+			flush(context);
+		}
+
+		private void flush(Context context) throws IOException, InterruptedException {
+			for(Map.Entry<FrameKey, FrameCount> entry:counts.entrySet()) {
+				context.write(entry.getKey(), entry.getValue());
+			}
+			
+			counts.clear();
+			countsBytes = 0;
+		}
+	}
+
+	/**
+	 * Adds up the partial counts of a projection, keeping the frame of the
+	 * first.
+	 */
+	public static class CombineClass extends
+	Reducer<FrameKey, FrameCount, FrameKey, FrameCount> {
+		private static FrameCount count = new FrameCount();
+
+		@Override
+		public void reduce(FrameKey key, Iterable<FrameCount> counts, Context context)
+				throws IOException,
+				InterruptedException {
+			long frameCount = 0;
+			
+			for(FrameCount partialCount:counts) {
+				if(frameCount == 0) {
+					count.setFrame(partialCount);
+				}
+				frameCount += partialCount.getCount();
+			}
+			
+			count.setCount(frameCount);
+			context.write(key, count);
+		}
+	}
+
+	public static class ReduceClass extends
+	Reducer<FrameKey, FrameCount, Frame, DoubleWritable> {
+		private static Frame frame = new Frame();
+		private static DoubleWritable count = new DoubleWritable();
+		private static ProjectionQuerySet projectionQuerySet;
+		private MultipleOutputs<Frame, DoubleWritable> multipleOutputs;
+		
+		@Override
+		public void setup(Context context) {
+			System.out.println("Setting up reducer...");
+			projectionQuerySet = ProjectionQuerySet.read(context.getConfiguration(), "query");
+			multipleOutputs = new MultipleOutputs<Frame, DoubleWritable>(context);
+			frame.setReuseSlots(true);
+		}
+
+		@Override
+		public void cleanup(Context context) throws IOException, InterruptedException {
+			multipleOutputs.close();
+		}
+
+		@Override
+		public void reduce(FrameKey key, Iterable<FrameCount> counts, Context context)
+				throws IOException,
+				InterruptedException {
+			long frameCount = 0;
+			
+			for(FrameCount partialCount:counts) {
+				if(frameCount == 0) {
+					partialCount.getFrame(frame);
+				}
+				frameCount += partialCount.getCount();
+			}
+			
+			count.set(frameCount);
+			context.getCounter("frame projection", "count").increment(1);
+			
+			if(projectionQuerySet.isNamed()) {
+				multipleOutputs.write(projectionQuerySet.getName(key.getQuery()), frame, count);
+			} else {
+				context.write(frame, count);
+			}
+		}
+	}
+
+
+	@Override
+	public int run(String[] args) throws Exception {
+		if (args.length != 4) {
+			System.out.println("Usage tool.statistics.FrequencyStatistics [inputPath] [outputPath] [numberOfReducers] [projection|@projectionFile]");
+			return -1;
+		}
+
+		String inputPath = args[0];
+		String outPath = args[1];
+		int reduceTasks = Integer.parseInt(args[2]);
+		String query = args[3];
+		ProjectionQuerySet projectionQuerySet = ProjectionQuerySet.isFile(query) ? ProjectionQuerySet.read(query, 1, getConf()) : ProjectionQuerySet.of(query);
+
+		sLogger.info("Tool: FrequencyStatistics");
+		sLogger.info(" - input path: " + inputPath);
+		sLogger.info(" - output path: " + outPath);
+		sLogger.info(" - number of reducers: " + reduceTasks);
+		sLogger.info(" - projection: " + projectionQuerySet);
+
+		Job job = new Job(getConf(), "Frequency Statistics");
+
+		projectionQuerySet.write(job.getConfiguration(), "query");
+
+		job.setJarByClass(FrequencyStatistics.class);
+		job.setNumReduceTasks(reduceTasks);
+
+		FileInputFormat.addInputPaths(job, inputPath);
+		FileOutputFormat.setOutputPath(job, new Path(outPath));
+
+		if(getConf().getBoolean("columnar", false)) {
+			ColumnarFrameInputFormat.setRelations(job.getConfiguration(), projectionQuerySet.getRelations());
+			job.setInputFormatClass(ColumnarFrameInputFormat.class);
+		} else if(getConf().getBoolean("indexed", false)) {
+			for(int i=0; i<projectionQuerySet.size(); i++) {
+				RelationIndexInputFormat.addRelations(job.getConfiguration(), new ProjectionQuery(projectionQuerySet.getProjection(i, 0)).getRelations());
+			}
+			job.setInputFormatClass(RelationIndexInputFormat.class);
+		} else if(getConf().get(FrameDictionary.DICTIONARY) != null) {
+			job.setInputFormatClass(IntFrameInputFormat.class);
+		} else {
+			job.setInputFormatClass(SequenceFileInputFormat.class);
+		}
+
+		job.setMapOutputKeyClass(FrameKey.class);
+		job.setMapOutputValueClass(FrameCount.class);
+		job.setSortComparatorClass(FrameKey.Comparator.class);
+		job.setPartitionerClass(FrameKeyPartitioner.class);
+
+		job.setOutputKeyClass(Frame.class);
+		job.setOutputValueClass(DoubleWritable.class);
+
+		SequenceFileOutputFormat.setCompressOutput(job, false);
+		
+		if(projectionQuerySet.isNamed()) {
+			LazyOutputFormat.setOutputFormatClass(job, SequenceFileOutputFormat.class);
+
+			for(int i=0; i<projectionQuerySet.size(); i++) {
+				MultipleOutputs.addNamedOutput(job, projectionQuerySet.getName(i), SequenceFileOutputFormat.class, Frame.class, DoubleWritable.class);
+			}
+		} else {
+			job.setOutputFormatClass(SequenceFileOutputFormat.class);
+		}
+		
+		job.setMapperClass(MapClass.class);
+		job.setCombinerClass(CombineClass.class);
+		job.setReducerClass(ReduceClass.class);
+		
+		long startTime = System.currentTimeMillis();
+		job.waitForCompletion(true);
+		System.out.println("Job Finished in " + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds");
+
+		return 0;
+	}
+
+	/**
+	 * Dispatches command-line arguments to the tool via the
+	 * <code>ToolRunner</code>.
+	 */
+	public static void main(String[] args) throws Exception {
+		int res = ToolRunner.run(new FrequencyStatistics(), args);
+		System.exit(res);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,208 @@
+/**
+ * Refractive is a tool for extracting knowledge from syntactic and semantic relations.
+ * Copyright © 2013 Peter Exner
+ * 
+ * This file is part of Refractive.
+ *
+ * Refractive is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Refractive is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Refractive.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package tool.statistics;
+
+import io.Frame;
+import io.FrameKey;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.InputFormat;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.util.ReflectionUtils;
+
+import query.ProjectionQuery;
+
+/**
+ * Finds the heavy keys of a {@link ConditionalProbabilityStatistics} job
+ * and merges the partial results of the reducers they were spread over by
+ * {@link io.SkewAwarePartitioner}.
+ * <p>
+ * The keys are counted in a sample of the frames at the start of a few
+ * evenly spaced splits of the input. A key is heavy if it alone would give
+ * a reducer more than half of the average reducer load, and it is spread
+ * over enough reducers that no part of it does. The reducers write the
+ * results of heavy keys to the {@link #PARTIAL_OUTPUT} output, which a
+ * second job merges.
+ * <p>
+ * The load is counted in frames, which is only right for jobs that send
+ * every projected frame to the reducers. {@link FrequencyStatistics} adds
+ * up its counts in the mappers and combiners, so that a frequent key
+ * reaches the reducers only a few times per map task, and does not use
+ * this.
+ */
+public class SkewedKeys {
+	/**
+	 * The setting holding the number of frames sampled to find heavy keys.
+	 */
+	public static final String SAMPLE_FRAMES = "skew.sample.frames";
+	public static final int DEFAULT_SAMPLE_FRAMES = 100000;
+
+	/**
+	 * The named output holding the partial results of heavy keys.
+	 */
+	public static final String PARTIAL_OUTPUT = "partial";
+
+	private static final int SAMPLED_SPLITS = 10;
+	private static final String MERGE_DIRECTORY = "_merge";
+
+	private SkewedKeys() {
+	}
+
+	/**
+	 * Samples the input of a job, whose input format and number of reducers
+	 * are set, and returns its heavy keys with the number of reducers each
+	 * should be spread over. Keys are made like the map output keys of
+	 * {@link ConditionalProbabilityStatistics}, from the index of a query
+	 * and its projected frame.
+	 */
+	@SuppressWarnings("unchecked")
+	public static Map<FrameKey, Integer> sample(Job job, ProjectionQuery[] queries) throws IOException, InterruptedException, ClassNotFoundException {
+		Map<FrameKey, Integer> heavyKeys = new HashMap<FrameKey, Integer>();
+		Configuration conf = job.getConfiguration();
+		int partitions = job.getNumReduceTasks();
+
+		if(partitions < 2) {
+			return heavyKeys;
+		}
+
+		InputFormat<LongWritable, Frame> inputFormat = (InputFormat<LongWritable, Frame>)ReflectionUtils.newInstance(job.getInputFormatClass(), conf);
+		List<InputSplit> splits = inputFormat.getSplits(job);
+		int splitCount = Math.min(SAMPLED_SPLITS, splits.size());
+
+		if(splitCount == 0) {
+			return heavyKeys;
+		}
+
+		int framesPerSplit = Math.max(1, conf.getInt(SAMPLE_FRAMES, DEFAULT_SAMPLE_FRAMES) / splitCount);
+		Map<FrameKey, long[]> counts = new HashMap<FrameKey, long[]>();
+		FrameKey frameKey = new FrameKey();
+		long total = 0;
+
+		for(int i=0; i<splitCount; i++) {
+			InputSplit split = splits.get(i * splits.size() / splitCount);
+			TaskAttemptContext context = new TaskAttemptContext(conf, new TaskAttemptID());
+			RecordReader<LongWritable, Frame> reader = inputFormat.createRecordReader(split, context);
+
+			try {
+				reader.initialize(split, context);
+
+				for(int frameCount=0; frameCount<framesPerSplit && reader.nextKeyValue(); frameCount++) {
+					Frame frame = reader.getCurrentValue();
+					frame.setReuseSlots(true);
+
+					for(int j=0; j<queries.length; j++) {
+						Frame projectedFrame = queries[j].parseQuery(frame);
+						if(projectedFrame != null) {
+							frameKey.set(j, projectedFrame);
+							long[] count = counts.get(frameKey);
+
+							if(count == null) {
+								FrameKey countedKey = new FrameKey();
+								countedKey.set(frameKey);
+								count = new long[1];
+								counts.put(countedKey, count);
+							}
+
+							count[0]++;
+							total++;
+						}
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		}
+
+		for(Map.Entry<FrameKey, long[]> entry:counts.entrySet()) {
+			double load = (double)entry.getValue()[0] * partitions / total;
+
+			if(load > 0.5) {
+				heavyKeys.put(entry.getKey(), Math.min(partitions, (int)Math.ceil(2 * load)));
+			}
+		}
+
+		return heavyKeys;
+	}
+
+	/**
+	 * Returns the path matching the partial results of a job.
+	 */
+	public static Path getPartialPath(Path outputPath) {
+		return new Path(outputPath, PARTIAL_OUTPUT + "-*");
+	}
+
+	/**
+	 * Returns whether a job wrote partial results to its output path.
+	 */
+	public static boolean hasPartialOutput(FileSystem fs, Path outputPath) throws IOException {
+		FileStatus[] statuses = fs.globStatus(getPartialPath(outputPath));
+
+		return statuses != null && statuses.length > 0;
+	}
+
+	/**
+	 * Returns the path the merge job writes to, within the output path.
+	 */
+	public static Path getMergePath(Path outputPath) {
+		return new Path(outputPath, MERGE_DIRECTORY);
+	}
+
+	/**
+	 * Moves the results of the merge job next to the other results, as
+	 * e.g. part-merged-r-00000, and deletes the partial results.
+	 */
+	public static void finishMerge(FileSystem fs, Path outputPath) throws IOException {
+		Path mergePath = getMergePath(outputPath);
+
+		for(FileStatus status:fs.listStatus(mergePath)) {
+			String name = status.getPath().getName();
+
+			if(name.startsWith("_") || name.startsWith(".")) {
+				continue;
+			}
+
+			int suffix = name.lastIndexOf("-r-");
+			String mergedName = (suffix < 0) ? name + "-merged" : name.substring(0, suffix) + "-merged" + name.substring(suffix);
+
+			if(!fs.rename(status.getPath(), new Path(outputPath, mergedName))) {
+				throw new IOException("Could not move " + status.getPath() + " to " + outputPath);
+			}
+		}
+
+		for(FileStatus status:fs.globStatus(getPartialPath(outputPath))) {
+			fs.delete(status.getPath(), false);
+		}
+		fs.delete(mergePath, true);
+	}
+}